@@ -83,6 +83,8 @@ const ChatPage = () => {
   const [isOnline, setIsOnline] = useState(false); // Add state for online status
   const [lastSeen, setLastSeen] = useState(null); // Add state for last seen timestamp
   const typingTimeoutRef = useRef(null);
+  const loadedHistoryForRef = useRef(null); // Chat whose history is loaded, reconnects do not refetch it
+  const lastTypingSentRef = useRef(0); // Last "typing" frame, refreshed so the server does not expire it
 
   const messagesEndRef = useRef(null);
   const messagesContainerRef = useRef(null);
@@ -363,6 +365,14 @@ const ChatPage = () => {
 
       webSocketService.addOnDisconnectCallback(() => setConnected(false));
 
+      // Too many missed messages to replay: reload the open chat from the history endpoint
+      webSocketService.onSyncTruncatedCallbacks = [];
+      webSocketService.addOnSyncTruncatedCallback((otherUserId) => {
+        if (otherUserId?.toString() === selectedMatchId) {
+          loadChatHistory(selectedMatchId);
+        }
+      });
+
       // Only connect if not already connected
       if (!webSocketService.isConnected()) {
         setTimeout(() => {
@@ -377,7 +387,11 @@ const ChatPage = () => {
   // Load chat history when match is selected or chatId is provided
   useEffect(() => {
     if (selectedMatchId) {
-      loadChatHistory(selectedMatchId);
+      // A reconnect catches up through the WebSocket sync, only a newly selected chat is fetched
+      if (loadedHistoryForRef.current !== selectedMatchId) {
+        loadedHistoryForRef.current = selectedMatchId;
+        loadChatHistory(selectedMatchId);
+      }
 
       // Only setup subscription if we're connected
       if (connected) {
@@ -420,6 +434,13 @@ const ChatPage = () => {
 
       if (response.ok) {
         const chatHistory = await response.json();
+        // The newest loaded message is where the reconnect sync resumes
+        const newestId = Math.max(0, ...(chatHistory.content || []).map((msg) => msg.id || 0));
+        webSocketService.noteMessageId(chatIds[otherUserId], newestId);
+        if (page === 0) {
+          // The newest page is now on screen
+          webSocketService.sendReadReceipt(chatIds[otherUserId], newestId);
+        }
         setTotalPages(chatHistory.totalPages);
         setCurrentPage(chatHistory.currentPage);
 
@@ -603,6 +624,16 @@ const ChatPage = () => {
         chatIds[selectedMatchId]
       );
       setIsTyping(true);
+      lastTypingSentRef.current = Date.now();
+      await webSocketService.sendTypingStatus(chatIds[selectedMatchId], true);
+    } else if (
+      isTyping &&
+      selectedMatchId &&
+      chatIds[selectedMatchId] &&
+      Date.now() - lastTypingSentRef.current >= 2000
+    ) {
+      // Still typing: refresh before the server-side expiry turns the indicator off
+      lastTypingSentRef.current = Date.now();
       await webSocketService.sendTypingStatus(chatIds[selectedMatchId], true);
     }
   };
@@ -19,6 +19,12 @@ class WebSocketService {
     this.onlineUsers = new Map();
     this.onPresenceCallbacks = [];
     this.presenceInterval = null;
+    this.lastSeenIds = new Map(); // chatId -> newest persisted message id we have (sync cursor)
+    this.matchesByChat = new Map(); // chatId -> match, for messages replayed by the sync
+    this.onSyncTruncatedCallbacks = [];
+    this.lastReadSent = new Map(); // chatId -> newest message id we reported as read
+    this.readWatermarks = new Map(); // chatId -> newest message id the partner has read
+    this.onReadReceiptCallbacks = [];
     console.log("[WebSocket] Service initialized");
   }
 
@@ -139,6 +145,7 @@ class WebSocketService {
             console.log(
               `[WebSocket] Subscribing to chat for match ${otherUserId} with chatId ${chatId}`
             );
+            this.matchesByChat.set(chatId, match);
             this.subscribeToChat(chatId, match);
           } else {
             console.log(
@@ -148,6 +155,11 @@ class WebSocketService {
         });
       }
 
+      // Catch up on messages missed while disconnected
+      this.subscribeToChatSync();
+      this.requestChatSync();
+      this.subscribeToReadReceipts();
+
       // Subscribe to presence updates
       this.subscribeToPresence();
 
@@ -200,74 +212,186 @@ class WebSocketService {
       try {
         const receivedMessage = JSON.parse(message.body);
         console.log("[WebSocket] Parsed chat message:", receivedMessage);
+        this.handleChatMessage(chatId, match, receivedMessage);
+      } catch (error) {
+        console.error("[WebSocket] Error processing chat message:", error);
+        console.log("[WebSocket] Raw message body:", message.body);
+      }
+    });
 
-        // Create message ID
-        const messageId = `${chatId}-${receivedMessage.sentAt}`;
-        const chatMessages = this.seenMessages.get(chatId) || new Set();
+    // Store the message callback with the subscription
+    subscription.messageCallback = onMessageReceived || null;
+    this.subscriptions.set(chatId, subscription);
+  }
+
+  // Shared by live chat messages and messages replayed by the reconnect sync
+  handleChatMessage(chatId, match, receivedMessage) {
+    // Persisted messages carry their id, which is the cursor for the next sync
+    if (receivedMessage.messageId) {
+      this.noteMessageId(chatId, receivedMessage.messageId);
+    }
 
-        // Handle regular message display in chat if callback exists
-        const storedCallback = subscription.messageCallback;
-        if (storedCallback) {
-          // If we have a callback, this is the active chat, so mark message as seen
-          if (!this.seenMessages.has(chatId)) {
-            this.seenMessages.set(chatId, new Set());
+    // Create message ID
+    const messageId = `${chatId}-${receivedMessage.sentAt}`;
+    const chatMessages = this.seenMessages.get(chatId) || new Set();
+
+    // Handle regular message display in chat if callback exists
+    const storedCallback = this.subscriptions.get(chatId)?.messageCallback;
+    if (storedCallback) {
+      // If we have a callback, this is the active chat, so mark message as seen
+      if (!this.seenMessages.has(chatId)) {
+        this.seenMessages.set(chatId, new Set());
+      }
+      this.seenMessages.get(chatId).add(messageId);
+      // Shown in the open chat, so it is read
+      this.sendReadReceipt(chatId, receivedMessage.messageId);
+
+      storedCallback({
+        ...receivedMessage,
+        chatPartner: match.likedDisplayName || match.likedEmail,
+        timestamp: new Date(receivedMessage.sentAt).toLocaleString(
+          "et-EE",
+          {
+            year: "2-digit",
+            month: "2-digit",
+            day: "2-digit",
+            hour: "2-digit",
+            minute: "2-digit",
+            hour12: false,
           }
-          this.seenMessages.get(chatId).add(messageId);
+        ),
+      });
+    }
 
-          storedCallback({
+    // Send notification if message hasn't been seen and this isn't the active chat
+    if (!chatMessages.has(messageId) && !storedCallback) {
+      console.log(
+        "[WebSocket] Executing message callbacks:",
+        this.onMessageCallbacks.length
+      );
+      this.onMessageCallbacks.forEach((callback) => {
+        try {
+          callback({
             ...receivedMessage,
-            chatPartner: match.likedDisplayName || match.likedEmail,
-            timestamp: new Date(receivedMessage.sentAt).toLocaleString(
-              "et-EE",
-              {
-                year: "2-digit",
-                month: "2-digit",
-                day: "2-digit",
-                hour: "2-digit",
-                minute: "2-digit",
-                hour12: false,
-              }
-            ),
+            chatId: chatId,
+            senderDisplayName: match.likedDisplayName || "User",
+            senderId: match.likedId,
           });
+          console.log("[WebSocket] Message callback executed successfully");
+        } catch (callbackError) {
+          console.error(
+            "[WebSocket] Error in message callback:",
+            callbackError
+          );
         }
+      });
+    } else {
+      console.log(
+        "[WebSocket] Message already seen or in active chat, skipping notification:",
+        messageId
+      );
+    }
+  }
 
-        // Send notification if message hasn't been seen and this isn't the active chat
-        if (!chatMessages.has(messageId) && !storedCallback) {
-          console.log(
-            "[WebSocket] Executing message callbacks:",
-            this.onMessageCallbacks.length
-          );
-          this.onMessageCallbacks.forEach((callback) => {
-            try {
-              callback({
-                ...receivedMessage,
-                chatId: chatId,
-                senderDisplayName: match.likedDisplayName || "User",
-                senderId: match.likedId,
-              });
-              console.log("[WebSocket] Message callback executed successfully");
-            } catch (callbackError) {
-              console.error(
-                "[WebSocket] Error in message callback:",
-                callbackError
-              );
-            }
-          });
-        } else {
-          console.log(
-            "[WebSocket] Message already seen or in active chat, skipping notification:",
-            messageId
+  noteMessageId(chatId, messageId) {
+    if (!messageId || messageId <= (this.lastSeenIds.get(chatId) || 0)) {
+      return;
+    }
+    this.lastSeenIds.set(chatId, messageId);
+    if (this.stompClient?.connected) {
+      this.stompClient.publish({
+        destination: "/app/chat.sync.ack",
+        body: JSON.stringify({ chatId, messageId }),
+      });
+    }
+  }
+
+  // After a (re)connect ask only for messages newer than what we already have
+  subscribeToChatSync() {
+    this.stompClient.subscribe("/user/queue/chat-sync", (message) => {
+      try {
+        const batch = JSON.parse(message.body);
+        const match = this.matchesByChat.get(batch.chatId);
+        if (batch.truncated) {
+          // Too far behind to replay, let the page reload this chat
+          this.onSyncTruncatedCallbacks.forEach((callback) =>
+            callback(batch.otherUserId)
           );
+          return;
+        }
+        if (!match) {
+          return;
         }
+        (batch.messages || []).forEach((msg) => {
+          const syncKey = `${batch.chatId}-${msg.sentAt}`;
+          if (this.seenMessages.get(batch.chatId)?.has(syncKey)) {
+            this.noteMessageId(batch.chatId, msg.id);
+            return;
+          }
+          this.handleChatMessage(batch.chatId, match, {
+            sender: msg.senderDisplayName,
+            content: msg.messageContent,
+            sentAt: msg.sentAt,
+            messageId: msg.id,
+          });
+        });
       } catch (error) {
-        console.error("[WebSocket] Error processing chat message:", error);
-        console.log("[WebSocket] Raw message body:", message.body);
+        console.error("[WebSocket] Error processing chat sync:", error);
       }
     });
+  }
 
-    // Store the message callback with the subscription
-    subscription.messageCallback = onMessageReceived || null;
-    this.subscriptions.set(chatId, subscription);
+  requestChatSync() {
+    const lastSeen = {};
+    this.matchesByChat.forEach((match, chatId) => {
+      const lastSeenId = this.lastSeenIds.get(chatId);
+      if (lastSeenId) {
+        lastSeen[match.likedId] = lastSeenId;
+      }
+    });
+    if (Object.keys(lastSeen).length === 0) {
+      return;
+    }
+    console.log("[WebSocket] Requesting chat sync:", lastSeen);
+    this.stompClient.publish({
+      destination: "/app/chat.sync",
+      body: JSON.stringify({ lastSeen }),
+    });
+  }
+
+  // The server keeps only the highest id per chat and flushes periodically, so this can be sent freely
+  sendReadReceipt(chatId, messageId) {
+    if (!chatId || !messageId || messageId <= (this.lastReadSent.get(chatId) || 0)) {
+      return;
+    }
+    if (!this.stompClient?.connected) {
+      return;
+    }
+    this.lastReadSent.set(chatId, messageId);
+    this.stompClient.publish({
+      destination: `/app/chat/${chatId}/read`,
+      body: JSON.stringify({ messageId }),
+    });
+  }
+
+  subscribeToReadReceipts() {
+    this.stompClient.subscribe("/user/queue/read-receipts", (message) => {
+      try {
+        const receipt = JSON.parse(message.body);
+        this.readWatermarks.set(receipt.chatId, receipt.messageId);
+        this.onReadReceiptCallbacks.forEach((callback) => callback(receipt));
+      } catch (error) {
+        console.error("[WebSocket] Error processing read receipt:", error);
+      }
+    });
+  }
+
+  addOnReadReceiptCallback(callback) {
+    this.onReadReceiptCallbacks.push(callback);
+  }
+
+  addOnSyncTruncatedCallback(callback) {
+    this.onSyncTruncatedCallbacks.push(callback);
   }
 
   subscribeToMatches(userEmail) {
@@ -334,8 +458,9 @@ class WebSocketService {
       return;
     }
 
+    // Presence changes of this user's matches only (per-user queue)
     const subscription = this.stompClient.subscribe(
-      "/topic/presence",
+      "/user/queue/presence",
       (message) => {
         try {
           const presenceData = JSON.parse(message.body);
@@ -420,10 +545,16 @@ class WebSocketService {
       return;
     }
 
+    // The client id lets the server dedupe resends and match the save ack on /user/queue/chat-acks
+    const clientMessageId =
+      message.clientMessageId ||
+      `${Date.now().toString(36)}-${Math.random().toString(36).slice(2, 10)}`;
+
     this.stompClient.publish({
       destination: `/app/chat.private/${matchId}`,
-      body: JSON.stringify(message),
+      body: JSON.stringify({ ...message, clientMessageId }),
     });
+    return clientMessageId;
   }
 
   markMessageAsSeen(chatId, timestamp) {
@@ -578,33 +709,13 @@ class WebSocketService {
     }
 
     this.presenceInterval = setInterval(() => {
+      // Only changes are pushed now; the server reports stale users as offline
       if (this.stompClient?.connected) {
         this.sendPresence();
-        this.checkStaleUsers();
       }
     }, 5000);
   }
 
-  checkStaleUsers() {
-    const now = Date.now();
-    this.onlineUsers.forEach((userData, userEmail) => {
-      const lastHeartbeat = userData.lastSeen;
-      const isStale = now - lastHeartbeat > 45000; // 45 seconds
-
-      if (userData.online && isStale) {
-        this.onlineUsers.set(userEmail, {
-          ...userData,
-          online: false,
-        });
-
-        // Notify callbacks of status change
-        this.onPresenceCallbacks.forEach((callback) => {
-          callback(this.onlineUsers);
-        });
-      }
-    });
-  }
-
   stopPresenceUpdates() {
     if (this.presenceInterval) {
       clearInterval(this.presenceInterval);
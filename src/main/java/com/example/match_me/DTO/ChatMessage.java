@@ -6,6 +6,10 @@ public class ChatMessage {
     private String sender;
     private String content;
     private LocalDateTime sentAt;
+    // Generated by the sending client; echoed in the broadcast and the save acknowledgement
+    private String clientMessageId;
+    // UsersChat id once persisted; used by clients as their sync cursor (null when broadcast before saving)
+    private Long messageId;
 
     public ChatMessage() {}
 
@@ -40,4 +44,20 @@ public class ChatMessage {
     public void setSentAt(LocalDateTime sentAt) {
         this.sentAt = sentAt;
     }
+
+    public String getClientMessageId() {
+        return clientMessageId;
+    }
+
+    public void setClientMessageId(String clientMessageId) {
+        this.clientMessageId = clientMessageId;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
 }
@@ -0,0 +1,52 @@
+package com.example.match_me.DTO;
+
+// Sent to the sender on /user/queue/chat-acks once a message has been persisted (or has failed)
+public class ChatMessageAck {
+    private String clientMessageId;
+    private Long messageId;
+    private Long chatId;
+    private String status; // "saved" or "failed"
+
+    public ChatMessageAck() {}
+
+    public ChatMessageAck(String clientMessageId, Long messageId, Long chatId, String status) {
+        this.clientMessageId = clientMessageId;
+        this.messageId = messageId;
+        this.chatId = chatId;
+        this.status = status;
+    }
+
+    // Getters and setters
+
+    public String getClientMessageId() {
+        return clientMessageId;
+    }
+
+    public void setClientMessageId(String clientMessageId) {
+        this.clientMessageId = clientMessageId;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
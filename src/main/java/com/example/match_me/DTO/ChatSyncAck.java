@@ -0,0 +1,27 @@
+package com.example.match_me.DTO;
+
+// Sent by a client to /app/chat.sync.ack once it has applied messages up to messageId
+public class ChatSyncAck {
+    private Long chatId;
+    private Long messageId;
+
+    public ChatSyncAck() {}
+
+    // Getters and setters
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+}
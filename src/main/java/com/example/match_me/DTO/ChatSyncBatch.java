@@ -0,0 +1,64 @@
+package com.example.match_me.DTO;
+
+import java.util.List;
+
+// Missed messages of one chat, streamed to the requesting session on /user/queue/chat-sync
+public class ChatSyncBatch {
+    private Long chatId;
+    private Long otherUserId;
+    private List<UsersChatDTO> messages; // chronological
+    private boolean complete;            // last batch for this chat
+    private boolean truncated;           // too far behind, the client should reload the chat instead
+
+    public ChatSyncBatch() {}
+
+    public ChatSyncBatch(Long chatId, Long otherUserId, List<UsersChatDTO> messages, boolean complete, boolean truncated) {
+        this.chatId = chatId;
+        this.otherUserId = otherUserId;
+        this.messages = messages;
+        this.complete = complete;
+        this.truncated = truncated;
+    }
+
+    // Getters and setters
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public Long getOtherUserId() {
+        return otherUserId;
+    }
+
+    public void setOtherUserId(Long otherUserId) {
+        this.otherUserId = otherUserId;
+    }
+
+    public List<UsersChatDTO> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<UsersChatDTO> messages) {
+        this.messages = messages;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
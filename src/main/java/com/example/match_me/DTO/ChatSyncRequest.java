@@ -0,0 +1,22 @@
+package com.example.match_me.DTO;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Sent by a client on (re)connect to /app/chat.sync
+public class ChatSyncRequest {
+    // otherUserId -> id of the newest message the client has for that chat (null = none)
+    private Map<Long, Long> lastSeen = new HashMap<>();
+
+    public ChatSyncRequest() {}
+
+    // Getters and setters
+
+    public Map<Long, Long> getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(Map<Long, Long> lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+}
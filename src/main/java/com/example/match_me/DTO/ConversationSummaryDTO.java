@@ -0,0 +1,134 @@
+package com.example.match_me.DTO;
+
+import java.time.LocalDateTime;
+
+// One inbox entry of /api/chat/conversations, seen from the requesting user
+public class ConversationSummaryDTO {
+    private Long chatId;
+    private Long otherUserId;
+    private String otherUserEmail;
+    private String otherDisplayName;
+    private Long lastMessageId;
+    private String lastMessageSnippet;
+    private LocalDateTime lastMessageAt;
+    private Long lastSenderId;
+    private int unreadCount;
+    private Long readMessageId;
+    private Long otherReadMessageId; // how far the partner has read (for "seen" on own messages)
+
+    /* ---------- constructors ---------- */
+
+    public ConversationSummaryDTO() {}
+
+    public ConversationSummaryDTO(Long chatId, Long otherUserId, String otherUserEmail, String otherDisplayName,
+                                  Long lastMessageId, String lastMessageSnippet, LocalDateTime lastMessageAt,
+                                  Long lastSenderId, int unreadCount, Long readMessageId, Long otherReadMessageId) {
+        this.chatId = chatId;
+        this.otherUserId = otherUserId;
+        this.otherUserEmail = otherUserEmail;
+        this.otherDisplayName = otherDisplayName;
+        this.lastMessageId = lastMessageId;
+        this.lastMessageSnippet = lastMessageSnippet;
+        this.lastMessageAt = lastMessageAt;
+        this.lastSenderId = lastSenderId;
+        this.unreadCount = unreadCount;
+        this.readMessageId = readMessageId;
+        this.otherReadMessageId = otherReadMessageId;
+    }
+
+    /* ---------- getters / setters ---------- */
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public Long getOtherUserId() {
+        return otherUserId;
+    }
+
+    public void setOtherUserId(Long otherUserId) {
+        this.otherUserId = otherUserId;
+    }
+
+    public String getOtherUserEmail() {
+        return otherUserEmail;
+    }
+
+    public void setOtherUserEmail(String otherUserEmail) {
+        this.otherUserEmail = otherUserEmail;
+    }
+
+    public String getOtherDisplayName() {
+        return otherDisplayName;
+    }
+
+    public void setOtherDisplayName(String otherDisplayName) {
+        this.otherDisplayName = otherDisplayName;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public String getLastMessageSnippet() {
+        return lastMessageSnippet;
+    }
+
+    public void setLastMessageSnippet(String lastMessageSnippet) {
+        this.lastMessageSnippet = lastMessageSnippet;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(LocalDateTime lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public Long getLastSenderId() {
+        return lastSenderId;
+    }
+
+    public void setLastSenderId(Long lastSenderId) {
+        this.lastSenderId = lastSenderId;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(int unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+
+    public Long getReadMessageId() {
+        return readMessageId;
+    }
+
+    public void setReadMessageId(Long readMessageId) {
+        this.readMessageId = readMessageId;
+    }
+
+    public Long getOtherReadMessageId() {
+        return otherReadMessageId;
+    }
+
+    public void setOtherReadMessageId(Long otherReadMessageId) {
+        this.otherReadMessageId = otherReadMessageId;
+    }
+
+    // Cheap watermark check, no counting. Exact even when unreadCount is approximate (it is
+    // only reset by a read up to the last message).
+    public boolean isHasUnread() {
+        return lastMessageId != null && readMessageId != null && lastMessageId > readMessageId;
+    }
+}
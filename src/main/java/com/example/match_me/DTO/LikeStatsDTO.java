@@ -0,0 +1,49 @@
+package com.example.match_me.DTO;
+
+public class LikeStatsDTO {
+    private long likesGiven;
+    private long dislikesGiven;
+    private long likesReceived;
+    private long matches;
+
+    public LikeStatsDTO() {}
+
+    public LikeStatsDTO(long likesGiven, long dislikesGiven, long likesReceived, long matches) {
+        this.likesGiven = likesGiven;
+        this.dislikesGiven = dislikesGiven;
+        this.likesReceived = likesReceived;
+        this.matches = matches;
+    }
+
+    public long getLikesGiven() {
+        return likesGiven;
+    }
+
+    public void setLikesGiven(long likesGiven) {
+        this.likesGiven = likesGiven;
+    }
+
+    public long getDislikesGiven() {
+        return dislikesGiven;
+    }
+
+    public void setDislikesGiven(long dislikesGiven) {
+        this.dislikesGiven = dislikesGiven;
+    }
+
+    public long getLikesReceived() {
+        return likesReceived;
+    }
+
+    public void setLikesReceived(long likesReceived) {
+        this.likesReceived = likesReceived;
+    }
+
+    public long getMatches() {
+        return matches;
+    }
+
+    public void setMatches(long matches) {
+        this.matches = matches;
+    }
+}
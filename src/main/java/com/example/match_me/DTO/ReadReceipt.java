@@ -0,0 +1,43 @@
+package com.example.match_me.DTO;
+
+// Read watermark: userId has read chatId up to and including messageId.
+// Sent by clients to /app/chat/{chatId}/read and pushed to the other participant on /user/queue/read-receipts.
+public class ReadReceipt {
+    private Long chatId;
+    private Long userId;
+    private Long messageId;
+
+    public ReadReceipt() {}
+
+    public ReadReceipt(Long chatId, Long userId, Long messageId) {
+        this.chatId = chatId;
+        this.userId = userId;
+        this.messageId = messageId;
+    }
+
+    // Getters and setters
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+}
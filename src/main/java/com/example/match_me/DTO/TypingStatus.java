@@ -0,0 +1,47 @@
+package com.example.match_me.DTO;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Typing indicator frame, received on /app/chat/{chatId}/typing and broadcast on /topic/chat/{chatId}/typing
+public class TypingStatus {
+    private Long chatId;
+    private Long userId;
+    @JsonProperty("isTyping")
+    private boolean typing;
+
+    public TypingStatus() {}
+
+    public TypingStatus(Long chatId, Long userId, boolean typing) {
+        this.chatId = chatId;
+        this.userId = userId;
+        this.typing = typing;
+    }
+
+    // Getters and setters
+
+    public Long getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(Long chatId) {
+        this.chatId = chatId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    @JsonProperty("isTyping")
+    public boolean isTyping() {
+        return typing;
+    }
+
+    @JsonProperty("isTyping")
+    public void setTyping(boolean typing) {
+        this.typing = typing;
+    }
+}
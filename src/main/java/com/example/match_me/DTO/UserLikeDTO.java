@@ -14,6 +14,16 @@ public class UserLikeDTO {
 
     public UserLikeDTO() {}
 
+    // Used by the keyset page queries, which project the display names directly
+    public UserLikeDTO(Long id, Long likerId, Long likedId, String likerDisplayName, String likedDisplayName, boolean like) {
+        this.id = id;
+        this.likerId = likerId;
+        this.likedId = likedId;
+        this.likerDisplayName = likerDisplayName;
+        this.likedDisplayName = likedDisplayName;
+        this.like = like;
+    }
+
     /* ---------- getters / setters ---------- */
 
     public Long getId() {
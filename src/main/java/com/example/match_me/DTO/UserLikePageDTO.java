@@ -0,0 +1,46 @@
+package com.example.match_me.DTO;
+
+import java.util.List;
+
+// One keyset page of a like list. Pass nextCursor as "after" to get the next page.
+public class UserLikePageDTO {
+    private List<UserLikeDTO> content;
+    private Long nextCursor;
+    private boolean hasMore;
+
+    /* ---------- constructors ---------- */
+
+    public UserLikePageDTO() {}
+
+    public UserLikePageDTO(List<UserLikeDTO> content, Long nextCursor, boolean hasMore) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    /* ---------- getters / setters ---------- */
+
+    public List<UserLikeDTO> getContent() {
+        return content;
+    }
+
+    public void setContent(List<UserLikeDTO> content) {
+        this.content = content;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
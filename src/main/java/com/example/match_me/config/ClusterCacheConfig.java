@@ -0,0 +1,43 @@
+package com.example.match_me.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+
+import com.example.match_me.service.ClusterCacheEvents;
+
+// Only active with chat.broker.mode=relay. Adds ClusterCacheEvents.TOPIC to the destinations the
+// broker relay subscribes to on its shared system connection (next to the user registry and
+// unresolved user destination broadcasts), so every node receives the other nodes' cache invalidations.
+@Configuration
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "relay")
+public class ClusterCacheConfig {
+
+    @Bean
+    public static BeanPostProcessor clusterCacheSubscriptionPostProcessor(ObjectProvider<ClusterCacheEvents> clusterCacheEvents) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof StompBrokerRelayMessageHandler relay)) {
+                    return bean;
+                }
+                Map<String, MessageHandler> subscriptions = new HashMap<>();
+                if (relay.getSystemSubscriptions() != null) {
+                    subscriptions.putAll(relay.getSystemSubscriptions());
+                }
+                // Resolved on the first message, the relay is created before most services
+                subscriptions.put(ClusterCacheEvents.TOPIC, message -> clusterCacheEvents.getObject().handleMessage(message));
+                relay.setSystemSubscriptions(subscriptions);
+                return bean;
+            }
+        };
+    }
+}
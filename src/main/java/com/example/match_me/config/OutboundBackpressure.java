@@ -0,0 +1,229 @@
+package com.example.match_me.config;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.session.AbstractHttpSockJsSession;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Per-session outbound back-pressure on top of Spring's send limits (see WebSocketConfig).
+// Every outbound frame is counted as pending from the moment it enters clientOutboundChannel
+// until it has been written to the client's socket. When a session has too much pending,
+// low-priority frames (typing indicators, presence) are dropped for it; chat messages, acks and
+// everything else still go through. If the session stays backed up, Spring's send-time and
+// send-buffer limits close it, so one slow client cannot grow the heap without bound.
+//
+// SockJS HTTP fallbacks (xhr-streaming, polling) are different: sending only puts the frame in the
+// session's message cache and returns, and the cache is written out when the client's next HTTP
+// request arrives. For those sessions the cache size is the backlog: low-priority frames are dropped
+// once it holds lowPriorityPendingMessages frames, and the session is closed before the cache is
+// full (Spring would otherwise fail the send with a cache-full error).
+@Component
+public class OutboundBackpressure implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    // AbstractHttpSockJsSession.getMessageCache() is protected; read-only use, for its size
+    private static final Method SOCKJS_MESSAGE_CACHE = ReflectionUtils.findMethod(AbstractHttpSockJsSession.class, "getMessageCache");
+
+    static {
+        if (SOCKJS_MESSAGE_CACHE != null) {
+            ReflectionUtils.makeAccessible(SOCKJS_MESSAGE_CACHE);
+        }
+    }
+
+    private final int lowPriorityPendingMessages;
+    private final long lowPriorityPendingBytes;
+    private final int httpMessageCacheSize;
+
+    private final Map<String, SessionBacklog> backlogs = new ConcurrentHashMap<>();
+
+    private final Counter droppedTypingCounter;
+    private final Counter droppedPresenceCounter;
+    private final Counter slowClosedCounter;
+    private final Timer sendTimer;
+
+    private static class SessionBacklog {
+        final AtomicInteger messages = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        // Set for SockJS HTTP transports: frames waiting for the client's next request
+        final Queue<?> sockJsCache;
+
+        SessionBacklog(Queue<?> sockJsCache) {
+            this.sockJsCache = sockJsCache;
+        }
+    }
+
+    public OutboundBackpressure(MeterRegistry meterRegistry,
+                                @Value("${websocket.outbound.low-priority-pending-messages:32}") int lowPriorityPendingMessages,
+                                @Value("${websocket.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                                @Value("${websocket.sockjs.http-message-cache-size:500}") int httpMessageCacheSize) {
+        this.lowPriorityPendingMessages = lowPriorityPendingMessages;
+        this.httpMessageCacheSize = httpMessageCacheSize;
+        // Start shedding well before the hard buffer limit closes the session
+        this.lowPriorityPendingBytes = sendBufferSizeLimit / 2;
+        this.droppedTypingCounter = Counter.builder("websocket.outbound.dropped").tag("type", "typing").register(meterRegistry);
+        this.droppedPresenceCounter = Counter.builder("websocket.outbound.dropped").tag("type", "presence").register(meterRegistry);
+        this.slowClosedCounter = Counter.builder("websocket.outbound.slow.closed")
+            .description("Sessions closed because they exceeded the send time or buffer limit")
+            .register(meterRegistry);
+        this.sendTimer = Timer.builder("websocket.outbound.send").register(meterRegistry);
+        Gauge.builder("websocket.outbound.slow.sessions", this, OutboundBackpressure::countSlowSessions)
+            .description("Sessions currently over the low-priority threshold")
+            .register(meterRegistry);
+        Gauge.builder("websocket.outbound.pending.bytes", this, OutboundBackpressure::totalPendingBytes).register(meterRegistry);
+    }
+
+    // clientOutboundChannel: decide per frame whether the session can take it
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SessionBacklog backlog = backlogFor(message);
+        if (backlog == null) {
+            return message;
+        }
+        int size = payloadSize(message);
+        if (isBackedUp(backlog)) {
+            String destination = destinationOf(message);
+            if (destination != null && destination.endsWith("/typing")) {
+                droppedTypingCounter.increment();
+                return null;
+            }
+            if (destination != null && destination.contains("/presence")) {
+                droppedPresenceCounter.increment();
+                return null;
+            }
+        }
+        backlog.messages.incrementAndGet();
+        backlog.bytes.addAndGet(size);
+        return message;
+    }
+
+    // A frame that failed before reaching the socket is no longer pending
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent || ex != null) {
+            SessionBacklog backlog = backlogFor(message);
+            if (backlog != null) {
+                release(backlog, payloadSize(message));
+            }
+        }
+    }
+
+    // Wraps the raw session underneath Spring's buffering decorator, so a completed write here
+    // means the frame has really left the buffer
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionBacklog backlog = new SessionBacklog(sockJsMessageCache(session));
+                backlogs.put(session.getId(), backlog);
+                super.afterConnectionEstablished(new CountingSession(session, backlog));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                backlogs.remove(session.getId());
+                if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(closeStatus)) {
+                    slowClosedCounter.increment();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private class CountingSession extends WebSocketSessionDecorator {
+        private final SessionBacklog backlog;
+
+        CountingSession(WebSocketSession session, SessionBacklog backlog) {
+            super(session);
+            this.backlog = backlog;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            if (backlog.sockJsCache != null && backlog.sockJsCache.size() >= httpMessageCacheSize - 1) {
+                // Leave room for the close frame; the client reconnects and resyncs (/app/chat.sync)
+                release(backlog, message.getPayloadLength());
+                if (isOpen()) {
+                    close(CloseStatus.SESSION_NOT_RELIABLE);
+                }
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                // Counted in by STOMP payload and out by frame size, good enough to spot a backlog
+                release(backlog, message.getPayloadLength());
+            }
+        }
+    }
+
+    // Clamped at zero: frames written without passing the channel (e.g. STOMP errors) are not counted going in
+    private static void release(SessionBacklog backlog, long size) {
+        backlog.messages.updateAndGet(v -> Math.max(0, v - 1));
+        backlog.bytes.updateAndGet(v -> Math.max(0, v - size));
+    }
+
+    private boolean isBackedUp(SessionBacklog backlog) {
+        return backlog.messages.get() > lowPriorityPendingMessages || backlog.bytes.get() > lowPriorityPendingBytes
+            || (backlog.sockJsCache != null && backlog.sockJsCache.size() > lowPriorityPendingMessages);
+    }
+
+    private static Queue<?> sockJsMessageCache(WebSocketSession session) {
+        if (SOCKJS_MESSAGE_CACHE == null || !(session instanceof AbstractHttpSockJsSession httpSession)) {
+            return null;
+        }
+        return (Queue<?>) ReflectionUtils.invokeMethod(SOCKJS_MESSAGE_CACHE, httpSession);
+    }
+
+    private SessionBacklog backlogFor(Message<?> message) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        return sessionId != null ? backlogs.get(sessionId) : null;
+    }
+
+    // User destinations carry the /user/... destination the client subscribed to as the original destination
+    private static String destinationOf(Message<?> message) {
+        Object original = message.getHeaders().get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        if (original instanceof String originalDestination) {
+            return originalDestination;
+        }
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+
+    private static int payloadSize(Message<?> message) {
+        return message.getPayload() instanceof byte[] bytes ? bytes.length : 0;
+    }
+
+    private double countSlowSessions() {
+        return backlogs.values().stream().filter(this::isBackedUp).count();
+    }
+
+    private double totalPendingBytes() {
+        return backlogs.values().stream().mapToLong(b -> b.bytes.get()).sum();
+    }
+}
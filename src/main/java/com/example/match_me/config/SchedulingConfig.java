@@ -0,0 +1,19 @@
+package com.example.match_me.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+// The STOMP broker registers its own TaskScheduler (messageBrokerTaskScheduler, for heartbeats and
+// SockJS), which makes Spring Boot skip its auto-configured one. @Scheduled jobs would then run on the
+// broker's threads and spring.task.scheduling.* would be ignored, so the scheduler is declared here,
+// built from those properties. The bean name is the one @Scheduled looks for when several schedulers exist.
+@Configuration
+public class SchedulingConfig {
+
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.match_me.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Only active with spring.threads.virtual.enabled=true. Spring Boot then runs Tomcat requests
+// on virtual threads and WebSocketConfig does the same for the STOMP channels; this wraps the
+// DataSource in ConnectionPermitDataSource so the much larger number of concurrent handlers
+// cannot stampede the connection pool.
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionPermitPostProcessor(Environment environment,
+                                                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionPermitDataSource) {
+                    return bean;
+                }
+                // Default to the Hikari pool size, so waiting happens here rather than inside the pool
+                int permits = environment.getProperty("db.connection-permits", Integer.class,
+                    environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                long timeoutMs = environment.getProperty("db.connection-permit-timeout-ms", Long.class, 5000L);
+                ConnectionPermitDataSource guarded = new ConnectionPermitDataSource(dataSource, permits, timeoutMs);
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("db.connection.permits.available", guarded, ConnectionPermitDataSource::getAvailablePermits)
+                        .register(registry);
+                    Gauge.builder("db.connection.permits.waiting", guarded, ConnectionPermitDataSource::getQueueLength)
+                        .description("Threads waiting for a connection permit")
+                        .register(registry);
+                });
+                System.out.println("Database connections limited to " + permits + " concurrent permits");
+                return guarded;
+            }
+        };
+    }
+}
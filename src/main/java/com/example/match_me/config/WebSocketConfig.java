@@ -1,6 +1,8 @@
 package com.example.match_me.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
@@ -9,14 +11,16 @@ import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import com.example.match_me.entity.User;
+import com.example.match_me.repository.UserRepository;
 import com.example.match_me.security.JwtUtil;
+import com.example.match_me.security.StompUserPrincipal;
+import com.example.match_me.service.DisplayNameCache;
 
 /*When you call this in the frontend:
 client.activate();
@@ -35,12 +39,64 @@ stompClient.publish({
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Node-to-node traffic on the shared broker (user registry, cache invalidations); clients may
+    // neither subscribe nor send there
+    private static final String CLUSTER_DESTINATION_PREFIX = "/topic/cluster.";
+
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final UserRepository userRepository;
+    private final DisplayNameCache displayNameCache;
+    private final OutboundBackpressure outboundBackpressure;
+
+    // simple = in-process broker (single node), relay = external STOMP broker shared by all nodes
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.virtual-host:/}")
+    private String relayVirtualHost;
+
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    // Run the STOMP inbound/outbound channels on virtual threads (same switch as Tomcat, see VirtualThreadConfig)
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Per-session outbound limits: a client that does not read is closed once it is this far behind
+    @Value("${websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
 
-    public WebSocketConfig(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    // Frames a SockJS HTTP fallback session (xhr-streaming, polling) may hold between client requests
+    @Value("${websocket.sockjs.http-message-cache-size:500}")
+    private int httpMessageCacheSize;
+
+    public WebSocketConfig(JwtUtil jwtUtil, UserRepository userRepository, DisplayNameCache displayNameCache,
+                           OutboundBackpressure outboundBackpressure) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.userRepository = userRepository;
+        this.displayNameCache = displayNameCache;
+        this.outboundBackpressure = outboundBackpressure;
     }
 
     //this is to configure the message routing 
@@ -49,9 +105,30 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
         //these are broadcasting topics (where the server sends messages to multiple clients)
         // Server → Client topics
-        config.enableSimpleBroker("/topic");    // ← Where server broadcasts messages
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Every node relays /topic and /queue to the same external broker, so a message sent
+            // on one node reaches subscribers connected to any other node
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setVirtualHost(relayVirtualHost)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode)
+                    // Share connected users between nodes so convertAndSendToUser finds sessions held elsewhere
+                    .setUserDestinationBroadcast(CLUSTER_DESTINATION_PREFIX + "unresolved-user-destination")
+                    .setUserRegistryBroadcast(CLUSTER_DESTINATION_PREFIX + "simp-user-registry");
+            System.out.println("STOMP broker relay enabled (" + relayHost + ":" + relayPort + ")");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");    // ← Where server broadcasts messages (/queue for per-user replies)
+        }
         // Client → Server prefixes (where the client sends messages to the server)
         config.setApplicationDestinationPrefixes("/app"); // ← Prefix for client messages
+        // Per-user destinations, e.g. /user/queue/chat-acks (resolved by the principal's email)
+        config.setUserDestinationPrefix("/user");
+        // A thread per message has no queue order of its own, keep messages to one session in order
+        config.setPreservePublishOrder(virtualThreads);
     }
     //this is to register the stomp endpoints(configuring the infrastructure)
     //ws is an enpoint like i have /api/auth/login
@@ -60,11 +137,42 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // This is where clients connect:
         registry.addEndpoint("/ws") //this is theconnection endpoint
                 .setAllowedOriginPatterns("*")
-                .withSockJS();
+                .withSockJS()
+                // OutboundBackpressure sheds typing/presence well before this and closes the session at it
+                .setHttpMessageCacheSize(httpMessageCacheSize);
+        // Same for frames from one session (e.g. chat messages sent back to back)
+        registry.setPreserveReceiveOrder(virtualThreads);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                // Counts what is still queued per session, see OutboundBackpressure
+                .addDecoratorFactory(outboundBackpressure);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("ws-outbound-"));
+        }
+        // Drops typing/presence frames for sessions that are falling behind
+        registration.interceptors(outboundBackpressure);
+    }
+
+    private static SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(virtualThreadExecutor("ws-inbound-"));
+        }
         registration.interceptors(new ChannelInterceptor() {
             //this is to intercept the messages that are sent to the server and check if the user is authenticated
             @Override
@@ -87,9 +195,25 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                     }
                     //this is to get the email from the token
                     String userEmail = jwtUtil.getEmailFromToken(token);
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
-                    //adding user details to the WebSocket connection itself.
-                    accessor.setUser(new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+                    User user = userRepository.findByEmail(userEmail);
+                    if (user == null) {
+                        throw new IllegalArgumentException("User not found");
+                    }
+                    //adding the user to the WebSocket connection itself, resolved once here so later frames
+                    //can read the id and display name from the principal instead of looking the user up again
+                    StompUserPrincipal principal = new StompUserPrincipal(
+                            user.getId(), user.getEmail(), displayNameCache.getDisplayName(user.getId()));
+                    accessor.setUser(principal);
+                    if (accessor.getSessionAttributes() != null) {
+                        accessor.getSessionAttributes().put(StompUserPrincipal.SESSION_USER_ID, principal.getUserId());
+                        accessor.getSessionAttributes().put(StompUserPrincipal.SESSION_DISPLAY_NAME, principal.getDisplayName());
+                    }
+                }
+                if (accessor != null
+                        && (StompCommand.SUBSCRIBE.equals(accessor.getCommand()) || StompCommand.SEND.equals(accessor.getCommand()))
+                        && accessor.getDestination() != null
+                        && accessor.getDestination().startsWith(CLUSTER_DESTINATION_PREFIX)) {
+                    throw new IllegalArgumentException("Destination not allowed");
                 }
                 
                 return message;
@@ -1,32 +1,52 @@
 package com.example.match_me.controller;
 
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import com.example.match_me.DTO.ChatMessage;
+import com.example.match_me.DTO.ChatMessageAck;
+import com.example.match_me.DTO.ChatSyncAck;
+import com.example.match_me.DTO.ChatSyncRequest;
+import com.example.match_me.DTO.ConversationSummaryDTO;
+import com.example.match_me.DTO.ReadReceipt;
+import com.example.match_me.DTO.TypingStatus;
 import com.example.match_me.DTO.UsersChatDTO;
+import com.example.match_me.security.StompUserPrincipal;
+import com.example.match_me.service.ChatMessageWriter;
 import com.example.match_me.service.ChatService;
+import com.example.match_me.service.ChatSummaryService;
+import com.example.match_me.service.ChatSyncService;
 import com.example.match_me.service.LikeService;
+import com.example.match_me.service.PresenceFanout;
+import com.example.match_me.service.PresenceService;
+import com.example.match_me.service.ReadReceiptService;
+import com.example.match_me.service.TypingAggregator;
 import com.example.match_me.service.UserService;
 
 @Controller
@@ -45,9 +65,43 @@ public class ChatController {
     
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+    
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private PresenceService presenceService;
+    
+    @Autowired
+    private PresenceFanout presenceFanout;
+
+    @Autowired
+    private TypingAggregator typingAggregator;
+
+    @Autowired
+    private ChatSyncService chatSyncService;
+
+    @Autowired
+    private ChatSummaryService chatSummaryService;
+
+    @Autowired
+    private ReadReceiptService readReceiptService;
 
-    private final Map<String, Long> lastHeartbeats = new HashMap<>();
-    private final Map<String, Boolean> userStatuses = new HashMap<>();
+    @Value("${chat.inbox.max-size:200}")
+    private int maxInboxSize;
+
+    // User id resolved at CONNECT (see WebSocketConfig); the email lookup is only a fallback
+    private Long userIdOf(Principal principal) {
+        if (principal instanceof StompUserPrincipal stompUser) {
+            return stompUser.getUserId();
+        }
+        try {
+            return userService.getUserByEmail(principal.getName()).getId();
+        } catch (Exception e) {
+            System.err.println("ERROR: Could not find user with email: " + principal.getName());
+            throw new IllegalArgumentException("User not found");
+        }
+    }
 
     // Private chat endpoint for matched users
     @MessageMapping("/chat.private/{recipientId}")
@@ -58,14 +112,8 @@ public class ChatController {
     ) {
         String senderEmail = sender.getName();
         
-        // Get sender's user ID from email
-        Long senderId;
-        try {
-            senderId = userService.getUserByEmail(senderEmail).getId();
-        } catch (Exception e) {
-            System.err.println("ERROR: Could not find user with email: " + senderEmail);
-            throw new IllegalArgumentException("User not found");
-        }
+        // Sender's user ID comes from the session principal
+        Long senderId = userIdOf(sender);
         
         // Verify users are matched before allowing private chat
         if (!likeService.areUsersMatched(senderId, recipientId)) {
@@ -73,169 +121,126 @@ public class ChatController {
             throw new IllegalArgumentException("Users are not matched - private chat not allowed");
         }
         
+        String content = message.getContent();
+        if (content == null || content.isBlank() || content.length() > 2000) {
+            throw new IllegalArgumentException("Message must be between 1 and 2000 characters");
+        }
+        String clientMessageId = message.getClientMessageId();
+        if (clientMessageId == null || clientMessageId.isBlank()) {
+            clientMessageId = UUID.randomUUID().toString();
+        } else if (clientMessageId.length() > 64) {
+            throw new IllegalArgumentException("clientMessageId is too long");
+        }
+        message.setClientMessageId(clientMessageId);
+        
+        if (chatMessageWriter.isEnabled()) {
+            // Group-commit: broadcast now, persist with the next batch, ack the sender afterwards
+            Long chatId = chatService.findOrCreateChatId(senderId, recipientId);
+            message.setSentAt(LocalDateTime.now());
+            ChatMessageWriter.PendingMessage pending = new ChatMessageWriter.PendingMessage(
+                clientMessageId, chatId, senderId, senderEmail, content, message.getSentAt());
+            if (chatMessageWriter.submit(pending)) {
+                messagingTemplate.convertAndSend("/topic/chat/" + chatId, message);
+                return;
+            }
+            // Queue full: fall back to a synchronous save below
+        }
+        
         try {
             // Save message to database
-            UsersChatDTO savedMessage = chatService.saveMessage(senderId, recipientId, message.getContent());
+            UsersChatDTO savedMessage = chatService.saveMessage(senderId, recipientId, content, clientMessageId);
             
             // Use the chat ID for the WebSocket topic
             String topicName = "/topic/chat/" + savedMessage.getChatId();
             
             // Send message to the specific private chat topic with proper timestamp
             message.setSentAt(savedMessage.getSentAt());
+            message.setMessageId(savedMessage.getId());
             messagingTemplate.convertAndSend(topicName, message);
+            chatMessageWriter.sendAck(senderEmail,
+                new ChatMessageAck(clientMessageId, savedMessage.getId(), savedMessage.getChatId(), "saved"));
             
         } catch (Exception e) {
             System.err.println("ERROR saving message to database: " + e.getMessage());
             e.printStackTrace();
+            chatMessageWriter.sendAck(senderEmail, new ChatMessageAck(clientMessageId, null, null, "failed"));
             throw new RuntimeException("Failed to save message", e);
         }
     }
     
-    // Add typing status endpoint
+    // Typing frames go through TypingAggregator, which only broadcasts state transitions
     @MessageMapping("/chat/{chatId}/typing")
-    public void handleTypingStatus(@DestinationVariable Long chatId, @Payload Map<String, Object> payload) {
+    public void handleTypingStatus(@DestinationVariable Long chatId, @Payload TypingStatus status, Principal principal) {
         try {
-            // Safely get values with null checks
-            boolean isTyping = payload.containsKey("isTyping") ? (boolean) payload.get("isTyping") : false;
-            Long userId = null;
-            
-            // Safely parse userId if it exists
-            if (payload.containsKey("userId") && payload.get("userId") != null) {
-                try {
-                    Object userIdObj = payload.get("userId");
-                    if (userIdObj instanceof Integer) {
-                        userId = ((Integer) userIdObj).longValue();
-                    } else if (userIdObj instanceof Long) {
-                        userId = (Long) userIdObj;
-                    } else if (userIdObj instanceof String) {
-                        userId = Long.parseLong((String) userIdObj);
-                    } else {
-                        userId = Long.parseLong(userIdObj.toString());
-                    }
-                } catch (NumberFormatException e) {
-                    System.err.println("Error parsing userId: " + e.getMessage());
-                }
-            }
-            
-            // Create response payload
-            Map<String, Object> response = new HashMap<>();
-            response.put("chatId", chatId);
-            response.put("isTyping", isTyping);
-            if (userId != null) {
-                response.put("userId", userId);
+            // The sender is the connected user; the payload userId is only used without a principal
+            Long userId = principal != null ? userIdOf(principal) : status.getUserId();
+            if (userId == null) {
+                return;
             }
-
-            String destination = "/topic/chat/" + chatId + "/typing";
-            
-            // Broadcast typing status to all users in the chat
-            messagingTemplate.convertAndSend(destination, response);
-            
+            typingAggregator.onFrame(chatId, userId, status.isTyping());
         } catch (Exception e) {
             System.err.println("Error handling typing status: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Send a safe fallback response
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("chatId", chatId);
-            errorResponse.put("isTyping", false);
-            messagingTemplate.convertAndSend("/topic/chat/" + chatId + "/typing", errorResponse);
         }
     }
 
+    // Reconnect sync: only messages newer than the client's cursors are sent back, to this session
+    @MessageMapping("/chat.sync")
+    public void handleChatSync(@Payload ChatSyncRequest request, Principal principal,
+                               @Header("simpSessionId") String sessionId) {
+        chatSyncService.sync(userIdOf(principal), principal.getName(), sessionId, request);
+    }
+
+    @MessageMapping("/chat.sync.ack")
+    public void handleChatSyncAck(@Payload ChatSyncAck ack, Principal principal,
+                                  @Header("simpSessionId") String sessionId) {
+        chatSyncService.ack(userIdOf(principal), sessionId, ack.getChatId(), ack.getMessageId());
+    }
+
+    // Read receipt: the user has read this chat up to messageId (coalesced and flushed by ReadReceiptService)
+    @MessageMapping("/chat/{chatId}/read")
+    public void handleReadReceipt(@DestinationVariable Long chatId, @Payload ReadReceipt receipt, Principal principal) {
+        readReceiptService.submit(userIdOf(principal), chatId, receipt.getMessageId());
+    }
+
+    // Heartbeat from one of the user's sessions; only the offline -> online change is fanned out
     @MessageMapping("/presence")
-    @SendTo("/topic/presence")
-    public Map<String, Object> handlePresenceChange(Principal principal) {
-        String email = principal.getName();
-        long currentTime = System.currentTimeMillis();
-        
-        // Get user ID from email
-        Long userId = userService.getUserByEmail(email).getId();
-        
-        // Update heartbeat and status using user ID
-        lastHeartbeats.put(userId.toString(), currentTime);
-        userStatuses.put(userId.toString(), true);
-        
-        Map<String, Object> status = new HashMap<>();
-        status.put("user", userId.toString());
-        status.put("online", true);
-        status.put("timestamp", currentTime);
+    public void handlePresenceChange(Principal principal, @Header("simpSessionId") String sessionId) {
+        Long userId = userIdOf(principal);
         
-        return status;
+        // Record the heartbeat for this session (several tabs share one presence)
+        if (presenceService.heartbeat(userId, principal.getName(), sessionId)) {
+            presenceFanout.publish(userId, true);
+        }
     }
 
     @MessageMapping("/presence/request")
     public void handlePresenceRequest(Principal principal) {
-        long currentTime = System.currentTimeMillis();
-        long staleThreshold = 45000; // 45 seconds
-        
-        // Get current user's matches
-        Long currentUserId = userService.getUserByEmail(principal.getName()).getId();
-        List<Long> matchedUserIds = likeService.getConnectionIds(currentUserId);
-        
-        // Only broadcast status for matched users
-        matchedUserIds.forEach(userId -> {
-            String userIdStr = userId.toString();
-            if (lastHeartbeats.containsKey(userIdStr)) {
-                long lastHeartbeat = lastHeartbeats.get(userIdStr);
-                boolean isOnline = userStatuses.getOrDefault(userIdStr, false) && 
-                                 (currentTime - lastHeartbeat <= staleThreshold);
-                
-                Map<String, Object> status = new HashMap<>();
-                status.put("user", userIdStr);
-                status.put("online", isOnline);
-                status.put("timestamp", isOnline ? lastHeartbeat : currentTime);
-                
-                messagingTemplate.convertAndSend("/topic/presence", status);
-            }
-        });
+        // Status of the user's online matches, sent to this user only
+        presenceFanout.sendSnapshot(userIdOf(principal), principal.getName());
     }
 
     @EventListener
     public void handleSessionDisconnect(SessionDisconnectEvent event) {
         StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String email = headerAccessor.getUser().getName();
-        long currentTime = System.currentTimeMillis();
-        
-        // Get user ID from email
-        Long userId = userService.getUserByEmail(email).getId();
-        
-        // Update status maps using user ID
-        lastHeartbeats.remove(userId.toString());
-        userStatuses.remove(userId.toString());
+        if (headerAccessor.getUser() == null) {
+            return; // never got past CONNECT
+        }
+        chatSyncService.sessionClosed(event.getSessionId());
         
-        Map<String, Object> status = new HashMap<>();
-        status.put("user", userId.toString());
-        status.put("online", false);
-        status.put("timestamp", currentTime);
+        Long userId = userIdOf(headerAccessor.getUser());
         
-        messagingTemplate.convertAndSend("/topic/presence", status);
+        // Other tabs of the same user keep them online
+        if (presenceService.disconnect(userId, event.getSessionId())) {
+            presenceFanout.publish(userId, false);
+        }
     }
 
-    // Scheduled task to check for stale connections
-    @org.springframework.scheduling.annotation.Scheduled(fixedRate = 30000) // Run every 30 seconds
+    // Advances the presence timing wheel; only users due at this tick are looked at
+    @org.springframework.scheduling.annotation.Scheduled(fixedRateString = "${presence.tick-ms:5000}")
     public void checkStaleConnections() {
-        long currentTime = System.currentTimeMillis();
-        long staleThreshold = 45000; // 45 seconds
-        
-        lastHeartbeats.entrySet().removeIf(entry -> {
-            String email = entry.getKey();
-            long lastHeartbeat = entry.getValue();
-            
-            if (currentTime - lastHeartbeat > staleThreshold && userStatuses.getOrDefault(email, false)) {
-                // Mark user as offline
-                userStatuses.put(email, false);
-                
-                // Send offline status
-                Map<String, Object> status = new HashMap<>();
-                status.put("user", email);
-                status.put("online", false);
-                status.put("timestamp", currentTime);
-                messagingTemplate.convertAndSend("/topic/presence", status);
-                
-                return true; // Remove from heartbeats map
-            }
-            return false;
-        });
+        for (Long userId : presenceService.expireStale()) {
+            presenceFanout.publish(userId, false);
+        }
     }
 
     // REST endpoints for chat management
@@ -264,6 +269,33 @@ public class ChatController {
         }
     }
     
+    // Keyset history for scroll-back: ?before=<oldest loaded id> or ?after=<newest loaded id>
+    @GetMapping("/history/{otherUserId}/seek")
+    public ResponseEntity<?> getChatHistorySlice(
+        @PathVariable Long otherUserId,
+        @RequestParam(required = false) Long before,
+        @RequestParam(required = false) Long after,
+        @RequestParam(defaultValue = "20") int size) {
+        try {
+            Long currentUserId = userService.getCurrentUser().getId();
+            int pageSize = Math.max(1, Math.min(size, 100));
+            Slice<UsersChatDTO> slice = chatService.getChatHistorySlice(currentUserId, otherUserId, before, after, pageSize);
+            List<UsersChatDTO> content = slice.getContent();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("content", content);
+            response.put("hasMore", slice.hasNext());
+            response.put("oldestId", content.isEmpty() ? null : content.get(0).getId());
+            response.put("newestId", content.isEmpty() ? null : content.get(content.size() - 1).getId());
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     @GetMapping("/history/{otherUserId}/recent")
     public ResponseEntity<?> getRecentChatHistory(
         @PathVariable Long otherUserId,
@@ -289,32 +321,62 @@ public class ChatController {
     
 
     
+    // Inbox sorted by last activity, with preview and unread count, from chat_summaries in one query.
+    // Keyset paged: ?beforeAt=<nextBeforeAt>&beforeChatId=<nextBeforeChatId> of the previous page
     @GetMapping("/conversations")
-    public ResponseEntity<Map<String, Object>> getConversationPartners() {
+    public ResponseEntity<Map<String, Object>> getConversationPartners(
+        @RequestParam(defaultValue = "50") int limit,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeAt,
+        @RequestParam(required = false) Long beforeChatId) {
         try {
+            if ((beforeAt == null) != (beforeChatId == null)) {
+                return ResponseEntity.badRequest().build();
+            }
             Long currentUserId = userService.getCurrentUser().getId();
-            List<com.example.match_me.entity.User> partners = chatService.getConversationPartners(currentUserId);
+            Slice<ConversationSummaryDTO> page = chatSummaryService.getInbox(currentUserId, beforeAt, beforeChatId,
+                    Math.max(1, Math.min(limit, maxInboxSize)));
+            List<ConversationSummaryDTO> conversations = page.getContent();
+            ConversationSummaryDTO last = conversations.isEmpty() ? null : conversations.get(conversations.size() - 1);
             
-            // Convert to a simple format for the frontend
-            List<Map<String, Object>> partnerList = partners.stream()
-                    .map(user -> {
+            // Partner list in the old format for existing clients, paged together with the inbox
+            List<Map<String, Object>> partnerList = conversations.stream()
+                    .map(conversation -> {
                         Map<String, Object> partnerInfo = new HashMap<>();
-                        partnerInfo.put("id", user.getId());
-                        partnerInfo.put("email", user.getEmail());
-                        partnerInfo.put("displayName", user.getProfile() != null ? 
-                                user.getProfile().getDisplayName() : "Unknown");
+                        partnerInfo.put("id", conversation.getOtherUserId());
+                        partnerInfo.put("email", conversation.getOtherUserEmail());
+                        partnerInfo.put("displayName", conversation.getOtherDisplayName());
                         return partnerInfo;
                     })
                     .collect(java.util.stream.Collectors.toList());
             
             Map<String, Object> response = new HashMap<>();
+            response.put("conversations", conversations);
             response.put("conversationPartners", partnerList);
+            response.put("hasMore", page.hasNext());
+            response.put("nextBeforeAt", page.hasNext() ? last.getLastMessageAt() : null);
+            response.put("nextBeforeChatId", page.hasNext() ? last.getChatId() : null);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    // Same as the STOMP read receipt, for clients without a WebSocket; written with the next flush
+    @PostMapping("/conversations/{otherUserId}/read")
+    public ResponseEntity<?> markConversationRead(@PathVariable Long otherUserId, @RequestParam Long messageId) {
+        try {
+            Long currentUserId = userService.getCurrentUser().getId();
+            Long chatId = chatService.getChatId(currentUserId, otherUserId);
+            if (chatId == null) {
+                return ResponseEntity.notFound().build();
+            }
+            readReceiptService.submit(currentUserId, chatId, messageId);
+            return ResponseEntity.accepted().build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     @GetMapping("/exists/{otherUserId}")
     public ResponseEntity<Map<String, Object>> checkChatExists(@PathVariable Long otherUserId) {
         try {
@@ -2,11 +2,16 @@ package com.example.match_me.controller;
 
 import com.example.match_me.DTO.LikeRequest;
 import com.example.match_me.DTO.LikeResponse;
+import com.example.match_me.DTO.LikeStatsDTO;
 import com.example.match_me.DTO.UserLikeDTO;
+import com.example.match_me.DTO.UserLikePageDTO;
 import com.example.match_me.DTO.EnrichedMatchDTO;
 import com.example.match_me.service.LikeService;
+import com.example.match_me.service.SwipeWriteBehindQueue;
 import com.example.match_me.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,21 +29,66 @@ public class LikeController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SwipeWriteBehindQueue swipeWriteBehindQueue;
+
+    @Value("${likes.bulk.max-size:500}")
+    private int maxBulkSwipes;
+
+    @Value("${likes.page.max-size:100}")
+    private int maxPageSize;
+
     @PostMapping("/interact")
     public ResponseEntity<LikeResponse> interactWithUser(@RequestBody LikeRequest likeRequest) {
         Long currentUserId = userService.getCurrentUser().getId();
-        LikeResponse response = likeService.likeUser(currentUserId, likeRequest);
+        // In write-behind mode the swipe is queued and committed by the batch writer
+        LikeResponse response = swipeWriteBehindQueue.isEnabled()
+            ? swipeWriteBehindQueue.submit(currentUserId, likeRequest)
+            : likeService.likeUser(currentUserId, likeRequest);
         
         if (response.isSuccess()) {
             return ResponseEntity.ok(response);
+        } else if (SwipeWriteBehindQueue.isRejected(response)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         } else {
             return ResponseEntity.badRequest().body(response);
         }
     }
 
+    @PostMapping("/interact/bulk")
+    public ResponseEntity<List<LikeResponse>> interactWithUsers(@RequestBody List<LikeRequest> likeRequests) {
+        if (likeRequests == null || likeRequests.isEmpty() || likeRequests.size() > maxBulkSwipes) {
+            return ResponseEntity.badRequest().build();
+        }
+        // A malformed item rejects the whole request, per-item results are only for valid swipes
+        for (LikeRequest likeRequest : likeRequests) {
+            if (likeRequest == null || likeRequest.getLikedUserId() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        Long currentUserId = userService.getCurrentUser().getId();
+        // Per-item results, so a partially invalid batch still returns 200
+        List<LikeResponse> responses = swipeWriteBehindQueue.isEnabled()
+            ? swipeWriteBehindQueue.submitAll(currentUserId, likeRequests)
+            : likeService.likeUsers(currentUserId, likeRequests);
+        return ResponseEntity.ok(responses);
+    }
+
     @PostMapping("/remove")
     public ResponseEntity<Map<String, Object>> removeInteraction(@RequestBody LikeRequest likeRequest) {
         Long currentUserId = userService.getCurrentUser().getId();
+        // Queued behind any pending swipes for the pair, so an older swipe cannot re-create it
+        if (swipeWriteBehindQueue.isEnabled()) {
+            LikeResponse queued = swipeWriteBehindQueue.submitRemoval(currentUserId, likeRequest.getLikedUserId());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", queued.isSuccess());
+            response.put("message", queued.getMessage());
+            if (queued.isSuccess()) {
+                return ResponseEntity.ok(response);
+            }
+            return ResponseEntity.status(SwipeWriteBehindQueue.isRejected(queued)
+                ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_REQUEST).body(response);
+        }
         boolean success = likeService.removeInteraction(currentUserId, likeRequest.getLikedUserId());
         
         Map<String, Object> response = new HashMap<>();
@@ -81,6 +131,39 @@ public class LikeController {
         return ResponseEntity.ok(likes);
     }
 
+    // Keyset-paginated versions of the four lists above (?after=<nextCursor>&limit=<n>)
+    @GetMapping("/given/page")
+    public ResponseEntity<UserLikePageDTO> getLikesGivenPage(@RequestParam(required = false) Long after,
+                                                             @RequestParam(defaultValue = "50") int limit) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(likeService.getLikesGivenPage(currentUserId, after, pageSize(limit)));
+    }
+
+    @GetMapping("/dislikes/given/page")
+    public ResponseEntity<UserLikePageDTO> getDislikesGivenPage(@RequestParam(required = false) Long after,
+                                                                @RequestParam(defaultValue = "50") int limit) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(likeService.getDislikesGivenPage(currentUserId, after, pageSize(limit)));
+    }
+
+    @GetMapping("/all-interactions/page")
+    public ResponseEntity<UserLikePageDTO> getAllInteractionsPage(@RequestParam(required = false) Long after,
+                                                                  @RequestParam(defaultValue = "50") int limit) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(likeService.getAllInteractionsPage(currentUserId, after, pageSize(limit)));
+    }
+
+    @GetMapping("/received/page")
+    public ResponseEntity<UserLikePageDTO> getLikesReceivedPage(@RequestParam(required = false) Long after,
+                                                                @RequestParam(defaultValue = "50") int limit) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(likeService.getLikesReceivedPage(currentUserId, after, pageSize(limit)));
+    }
+
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
     @GetMapping("/matches")
     public ResponseEntity<List<UserLikeDTO>> getMatches() {
         Long currentUserId = userService.getCurrentUser().getId();
@@ -102,14 +185,13 @@ public class LikeController {
     public ResponseEntity<Map<String, Object>> getLikeStats() {
         Long currentUserId = userService.getCurrentUser().getId();
         
-        long likesGiven = likeService.getLikeCountGiven(currentUserId);
-        long dislikesGiven = likeService.getDislikeCountGiven(currentUserId);
-        long likesReceived = likeService.getLikeCountReceived(currentUserId);
+        LikeStatsDTO likeStats = likeService.getLikeStats(currentUserId);
         
         Map<String, Object> stats = new HashMap<>();
-        stats.put("likesGiven", likesGiven);
-        stats.put("dislikesGiven", dislikesGiven);
-        stats.put("likesReceived", likesReceived);
+        stats.put("likesGiven", likeStats.getLikesGiven());
+        stats.put("dislikesGiven", likeStats.getDislikesGiven());
+        stats.put("likesReceived", likeStats.getLikesReceived());
+        stats.put("matches", likeStats.getMatches());
         
         return ResponseEntity.ok(stats);
     }
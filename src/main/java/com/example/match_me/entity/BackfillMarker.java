@@ -0,0 +1,30 @@
+package com.example.match_me.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+// One row per one-time startup backfill that has completed (see OneTimeBackfills)
+@Entity
+@Table(name = "backfill_markers")
+public class BackfillMarker {
+
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    /* ---------- constructors ---------- */
+
+    public BackfillMarker() {}
+
+    /* ---------- getters / setters ---------- */
+
+    public String getName()                                { return name; }
+    public void setName(String name)                       { this.name = name; }
+
+    public LocalDateTime getCompletedAt()                  { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt)  { this.completedAt = completedAt; }
+}
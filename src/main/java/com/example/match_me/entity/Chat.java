@@ -3,17 +3,26 @@ package com.example.match_me.entity;
 import java.util.Arrays;
 import java.util.List;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
+// user1/user2 keep the order the chat was started in. The pair is also stored ordered
+// (userLowId < userHighId) so each pair has exactly one chat and is found with a single index probe.
 @Entity
-@Table(name = "chats")
+@Table(name = "chats", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_chats_user_pair", columnNames = {"user_low_id", "user_high_id"})
+}, indexes = {
+    @Index(name = "idx_chats_user_high", columnList = "user_high_id")
+})
 public class Chat {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,6 +36,12 @@ public class Chat {
     @JoinColumn(name = "user2_id")
     private User user2;
 
+    @Column(name = "user_low_id")
+    private Long userLowId;
+
+    @Column(name = "user_high_id")
+    private Long userHighId;
+
     @OneToMany(mappedBy = "chat")
     private List<UsersChat> messages;
 
@@ -36,6 +51,8 @@ public class Chat {
     public Chat(User user1, User user2) {
         this.user1 = user1;
         this.user2 = user2;
+        this.userLowId = Math.min(user1.getId(), user2.getId());
+        this.userHighId = Math.max(user1.getId(), user2.getId());
     }
 
     public Long getId() {
@@ -62,6 +79,14 @@ public class Chat {
         this.user2 = user2;
     }
 
+    public Long getUserLowId() {
+        return userLowId;
+    }
+
+    public Long getUserHighId() {
+        return userHighId;
+    }
+
     public List<UsersChat> getMessages() {
         return messages;
     }
@@ -0,0 +1,85 @@
+package com.example.match_me.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+// Denormalized inbox row, one per participant of a chat: last message preview plus that
+// participant's unread count and read watermark. Maintained by ChatSummaryService whenever a
+// message is saved, so the conversation list is a single range scan on (user_id, last_message_at).
+@Entity
+@Table(name = "chat_summaries", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_chat_summaries_user_chat", columnNames = {"user_id", "chat_id"})
+}, indexes = {
+    @Index(name = "idx_chat_summaries_inbox", columnList = "user_id, last_message_at, chat_id")
+})
+public class ChatSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+
+    @Column(name = "other_user_id", nullable = false)
+    private Long otherUserId;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_message_snippet", length = 100)
+    private String lastMessageSnippet;
+
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+
+    @Column(name = "last_sender_id", nullable = false)
+    private Long lastSenderId;
+
+    @Column(name = "unread_count", nullable = false)
+    private int unreadCount;
+
+    // Newest message id this participant has read (0 = none)
+    @Column(name = "read_message_id", nullable = false)
+    private Long readMessageId;
+
+    /* ---------- constructors ---------- */
+
+    public ChatSummary() {}
+
+    /* ---------- getters / setters ---------- */
+
+    public Long getId()                                   { return id; }
+    public void setId(Long id)                            { this.id = id; }
+
+    public Long getUserId()                               { return userId; }
+    public void setUserId(Long userId)                    { this.userId = userId; }
+
+    public Long getChatId()                               { return chatId; }
+    public void setChatId(Long chatId)                    { this.chatId = chatId; }
+
+    public Long getOtherUserId()                          { return otherUserId; }
+    public void setOtherUserId(Long otherUserId)          { this.otherUserId = otherUserId; }
+
+    public Long getLastMessageId()                        { return lastMessageId; }
+    public void setLastMessageId(Long lastMessageId)      { this.lastMessageId = lastMessageId; }
+
+    public String getLastMessageSnippet()                 { return lastMessageSnippet; }
+    public void setLastMessageSnippet(String snippet)     { this.lastMessageSnippet = snippet; }
+
+    public LocalDateTime getLastMessageAt()               { return lastMessageAt; }
+    public void setLastMessageAt(LocalDateTime at)        { this.lastMessageAt = at; }
+
+    public Long getLastSenderId()                         { return lastSenderId; }
+    public void setLastSenderId(Long lastSenderId)        { this.lastSenderId = lastSenderId; }
+
+    public int getUnreadCount()                           { return unreadCount; }
+    public void setUnreadCount(int unreadCount)           { this.unreadCount = unreadCount; }
+
+    public Long getReadMessageId()                        { return readMessageId; }
+    public void setReadMessageId(Long readMessageId)      { this.readMessageId = readMessageId; }
+}
@@ -0,0 +1,63 @@
+package com.example.match_me.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+// Pending /topic/matches notifications. Rows are written in the swipe transaction
+// and deleted by MatchNotificationDispatcher once the message has been handed to the broker.
+@Entity
+@Table(name = "match_notification_outbox", indexes = {
+    @Index(name = "idx_match_outbox_next_attempt", columnList = "next_attempt_at, id")
+})
+public class MatchNotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "recipient_id", nullable = false)
+    private Long recipientId;
+
+    @Column(name = "matched_user_id", nullable = false)
+    private Long matchedUserId;
+
+    @Column(name = "matched_user_name")
+    private String matchedUserName;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    /* ---------- constructors ---------- */
+
+    public MatchNotificationOutbox() {}
+
+    /* ---------- getters / setters ---------- */
+
+    public Long getId()                                   { return id; }
+    public void setId(Long id)                            { this.id = id; }
+
+    public Long getRecipientId()                          { return recipientId; }
+    public void setRecipientId(Long recipientId)          { this.recipientId = recipientId; }
+
+    public Long getMatchedUserId()                        { return matchedUserId; }
+    public void setMatchedUserId(Long matchedUserId)      { this.matchedUserId = matchedUserId; }
+
+    public String getMatchedUserName()                    { return matchedUserName; }
+    public void setMatchedUserName(String name)           { this.matchedUserName = name; }
+
+    public int getAttempts()                              { return attempts; }
+    public void setAttempts(int attempts)                 { this.attempts = attempts; }
+
+    public Instant getCreatedAt()                         { return createdAt; }
+    public void setCreatedAt(Instant createdAt)           { this.createdAt = createdAt; }
+
+    public Instant getNextAttemptAt()                     { return nextAttemptAt; }
+    public void setNextAttemptAt(Instant nextAttemptAt)   { this.nextAttemptAt = nextAttemptAt; }
+}
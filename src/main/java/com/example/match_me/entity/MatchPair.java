@@ -0,0 +1,74 @@
+package com.example.match_me.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+// One row per mutual like. The pair is stored ordered (userLow.id < userHigh.id)
+// so each match exists exactly once and can be found with a single index probe.
+@Entity
+@Table(name = "matches", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_low_id", "user_high_id"})
+}, indexes = {
+    @Index(name = "idx_matches_user_high", columnList = "user_high_id")
+})
+public class MatchPair {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_low_id", nullable = false)
+    private User userLow;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_high_id", nullable = false)
+    private User userHigh;
+
+    @Column(name = "matched_at", nullable = false)
+    private Instant matchedAt;
+
+    /* ---------- constructors ---------- */
+
+    public MatchPair() {}
+
+    /* ---------- getters / setters ---------- */
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUserLow() {
+        return userLow;
+    }
+
+    public void setUserLow(User userLow) {
+        this.userLow = userLow;
+    }
+
+    public User getUserHigh() {
+        return userHigh;
+    }
+
+    public void setUserHigh(User userHigh) {
+        this.userHigh = userHigh;
+    }
+
+    public Instant getMatchedAt() {
+        return matchedAt;
+    }
+
+    public void setMatchedAt(Instant matchedAt) {
+        this.matchedAt = matchedAt;
+    }
+
+    // Id of the other user in this match
+    public Long getPartnerId(Long userId) {
+        return userLow.getId().equals(userId) ? userHigh.getId() : userLow.getId();
+    }
+}
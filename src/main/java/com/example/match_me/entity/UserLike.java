@@ -5,6 +5,11 @@ import jakarta.persistence.*;
 @Entity
 @Table(name = "user_likes", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"liker_id", "liked_id"})
+}, indexes = {
+    // Keyset pages: given/received lists ordered by id, and all interactions of a liker
+    @Index(name = "idx_user_likes_liker_like_id", columnList = "liker_id, is_like, id"),
+    @Index(name = "idx_user_likes_liker_id", columnList = "liker_id, id"),
+    @Index(name = "idx_user_likes_liked_like_id", columnList = "liked_id, is_like, id")
 })
 public class UserLike {
 
@@ -0,0 +1,47 @@
+package com.example.match_me.entity;
+
+import jakarta.persistence.*;
+
+// Denormalized per-user counters behind /api/likes/stats.
+// Maintained incrementally by every swipe and checked by LikeStatsService's reconciliation job.
+@Entity
+@Table(name = "user_like_stats")
+public class UserLikeStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "likes_given", nullable = false)
+    private long likesGiven;
+
+    @Column(name = "dislikes_given", nullable = false)
+    private long dislikesGiven;
+
+    @Column(name = "likes_received", nullable = false)
+    private long likesReceived;
+
+    @Column(name = "matches", nullable = false)
+    private long matches;
+
+    /* ---------- constructors ---------- */
+
+    public UserLikeStats() {}
+
+    /* ---------- getters / setters ---------- */
+
+    public Long getUserId()                       { return userId; }
+    public void setUserId(Long userId)            { this.userId = userId; }
+
+    public long getLikesGiven()                   { return likesGiven; }
+    public void setLikesGiven(long likesGiven)    { this.likesGiven = likesGiven; }
+
+    public long getDislikesGiven()                { return dislikesGiven; }
+    public void setDislikesGiven(long d)          { this.dislikesGiven = d; }
+
+    public long getLikesReceived()                { return likesReceived; }
+    public void setLikesReceived(long r)          { this.likesReceived = r; }
+
+    public long getMatches()                      { return matches; }
+    public void setMatches(long matches)          { this.matches = matches; }
+}
@@ -8,12 +8,20 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "users_chat")
+@Table(name = "users_chat", uniqueConstraints = {
+    // Lets a client safely resend a message with the same client-generated id
+    @UniqueConstraint(columnNames = {"sender_id", "client_message_id"})
+}, indexes = {
+    // Keyset history pages seek on (chat, time, id)
+    @Index(name = "idx_users_chat_chat_sent_id", columnList = "chat_id, sent_at, id")
+})
 public class UsersChat {
     
     @Id
@@ -34,6 +42,9 @@ public class UsersChat {
     @Column(name = "sent_at", nullable = false)
     private LocalDateTime sentAt;
     
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+    
     // Constructors
     public UsersChat() {
         this.sentAt = LocalDateTime.now();
@@ -86,4 +97,12 @@ public class UsersChat {
     public void setSentAt(LocalDateTime sentAt) {
         this.sentAt = sentAt;
     }
-} 
\ No newline at end of file
+    
+    public String getClientMessageId() {
+        return clientMessageId;
+    }
+    
+    public void setClientMessageId(String clientMessageId) {
+        this.clientMessageId = clientMessageId;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.match_me.repository;
+
+import com.example.match_me.entity.BackfillMarker;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BackfillMarkerRepository extends JpaRepository<BackfillMarker, String> {
+
+    // Serializes nodes running the same backfill until the transaction ends
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext(:name))", nativeQuery = true)
+    Integer lock(@Param("name") String name);
+
+    @Modifying
+    @Query(value = "INSERT INTO backfill_markers (name, completed_at) VALUES (:name, now()) " +
+                   "ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    int markDone(@Param("name") String name);
+}
@@ -4,29 +4,70 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.match_me.entity.Chat;
 
 @Repository
 public interface ChatRepository extends JpaRepository<Chat, Long> {
     
+    // Lookups by the ordered pair hit the (user_low_id, user_high_id) unique index
+    @Query("SELECT c FROM Chat c WHERE c.userLowId = :lowId AND c.userHighId = :highId")
+    Optional<Chat> findByPair(@Param("lowId") Long lowId, @Param("highId") Long highId);
+
+    @Query("SELECT c.id FROM Chat c WHERE c.userLowId = :lowId AND c.userHighId = :highId")
+    Optional<Long> findIdByPair(@Param("lowId") Long lowId, @Param("highId") Long highId);
+    
     // Find a chat between two users (in any order)
-    @Query("SELECT c FROM Chat c WHERE " +
-           "(c.user1.id = :user1Id AND c.user2.id = :user2Id) OR " +
-           "(c.user1.id = :user2Id AND c.user2.id = :user1Id)")
-    Optional<Chat> findChatBetweenUsers(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+    default Optional<Chat> findChatBetweenUsers(Long user1Id, Long user2Id) {
+        return findByPair(Math.min(user1Id, user2Id), Math.max(user1Id, user2Id));
+    }
     
+    @Query("SELECT COUNT(c) > 0 FROM Chat c WHERE c.id = :chatId AND (c.userLowId = :userId OR c.userHighId = :userId)")
+    boolean isMember(@Param("chatId") Long chatId, @Param("userId") Long userId);
+
     // Find all chats where a user is involved
     @Query("SELECT c FROM Chat c WHERE " +
-           "c.user1.id = :userId OR c.user2.id = :userId")
+           "c.userLowId = :userId OR c.userHighId = :userId")
     List<Chat> findChatsByUserId(@Param("userId") Long userId);
     
     // Check if a chat exists between two users
-    @Query("SELECT COUNT(c) > 0 FROM Chat c WHERE " +
-           "(c.user1.id = :user1Id AND c.user2.id = :user2Id) OR " +
-           "(c.user1.id = :user2Id AND c.user2.id = :user1Id)")
-    boolean existsChatBetweenUsers(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
-} 
\ No newline at end of file
+    default boolean existsChatBetweenUsers(Long user1Id, Long user2Id) {
+        return findIdByPair(Math.min(user1Id, user2Id), Math.max(user1Id, user2Id)).isPresent();
+    }
+
+    // Atomic insert-or-get: a concurrent first message for the same pair waits on the unique
+    // index and then gets the id of the chat the other transaction created
+    @Transactional
+    @Query(value = "INSERT INTO chats (user1_id, user2_id, user_low_id, user_high_id) " +
+                   "VALUES (:user1Id, :user2Id, LEAST(:user1Id, :user2Id), GREATEST(:user1Id, :user2Id)) " +
+                   "ON CONFLICT (user_low_id, user_high_id) DO UPDATE SET user_low_id = EXCLUDED.user_low_id " +
+                   "RETURNING id", nativeQuery = true)
+    Long insertOrGetId(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM chats WHERE user_low_id IS NULL)", nativeQuery = true)
+    boolean existsChatWithoutPair();
+
+    // Chats created before the pair columns: duplicates of a pair are merged into the oldest chat
+    String CHAT_KEEPERS = "(SELECT id, MIN(id) OVER (PARTITION BY LEAST(user1_id, user2_id), " +
+                          "GREATEST(user1_id, user2_id)) AS keeper_id FROM chats) k ";
+
+    @Modifying
+    @Query(value = "UPDATE users_chat uc SET chat_id = k.keeper_id FROM " + CHAT_KEEPERS +
+                   "WHERE uc.chat_id = k.id AND k.id <> k.keeper_id", nativeQuery = true)
+    int moveMessagesToKeeperChats();
+
+    @Modifying
+    @Query(value = "DELETE FROM chats c USING " + CHAT_KEEPERS +
+                   "WHERE c.id = k.id AND k.id <> k.keeper_id", nativeQuery = true)
+    int deleteDuplicateChats();
+
+    @Modifying
+    @Query(value = "UPDATE chats SET user_low_id = LEAST(user1_id, user2_id), user_high_id = GREATEST(user1_id, user2_id) " +
+                   "WHERE user_low_id IS NULL", nativeQuery = true)
+    int backfillPairColumns();
+}
@@ -0,0 +1,48 @@
+package com.example.match_me.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.match_me.DTO.ConversationSummaryDTO;
+import com.example.match_me.entity.ChatSummary;
+
+@Repository
+public interface ChatSummaryRepository extends JpaRepository<ChatSummary, Long> {
+
+    // The whole inbox in one query: backward scan of idx_chat_summaries_inbox plus the partner's name
+    // and the partner's read watermark (their own summary row, a unique-index probe)
+    String INBOX_SELECT = "SELECT new com.example.match_me.DTO.ConversationSummaryDTO(s.chatId, s.otherUserId, u.email, " +
+           "COALESCE(p.displayName, 'Unknown'), s.lastMessageId, s.lastMessageSnippet, s.lastMessageAt, " +
+           "s.lastSenderId, s.unreadCount, s.readMessageId, COALESCE(o.readMessageId, 0L)) " +
+           "FROM ChatSummary s JOIN User u ON u.id = s.otherUserId LEFT JOIN UserProfile p ON p.id = s.otherUserId " +
+           "LEFT JOIN ChatSummary o ON o.chatId = s.chatId AND o.userId = s.otherUserId ";
+
+    @Query(INBOX_SELECT + "WHERE s.userId = :userId ORDER BY s.lastMessageAt DESC, s.chatId DESC")
+    Slice<ConversationSummaryDTO> findInbox(@Param("userId") Long userId, Pageable pageable);
+
+    // Next page after the last entry shown, on the same index order (lastMessageAt, chatId)
+    @Query(INBOX_SELECT + "WHERE s.userId = :userId AND (s.lastMessageAt < :beforeAt " +
+           "OR (s.lastMessageAt = :beforeAt AND s.chatId < :beforeChatId)) " +
+           "ORDER BY s.lastMessageAt DESC, s.chatId DESC")
+    Slice<ConversationSummaryDTO> findInboxBefore(@Param("userId") Long userId, @Param("beforeAt") LocalDateTime beforeAt,
+                                                  @Param("beforeChatId") Long beforeChatId, Pageable pageable);
+
+    // Summaries for chats that existed before the table; there was no read state, so they start read
+    @Modifying
+    @Query(value = "INSERT INTO chat_summaries (user_id, chat_id, other_user_id, last_message_id, last_message_snippet, " +
+                   "last_message_at, last_sender_id, unread_count, read_message_id) " +
+                   "SELECT p.user_id, c.id, p.other_id, m.id, LEFT(m.message_content, 100), m.sent_at, m.sender_id, 0, m.id " +
+                   "FROM chats c " +
+                   "CROSS JOIN LATERAL (VALUES (c.user1_id, c.user2_id), (c.user2_id, c.user1_id)) p(user_id, other_id) " +
+                   "JOIN LATERAL (SELECT id, message_content, sent_at, sender_id FROM users_chat " +
+                   "WHERE chat_id = c.id ORDER BY sent_at DESC, id DESC LIMIT 1) m ON true " +
+                   "ON CONFLICT (user_id, chat_id) DO NOTHING", nativeQuery = true)
+    int backfillFromMessages();
+}
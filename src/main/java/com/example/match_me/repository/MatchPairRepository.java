@@ -0,0 +1,51 @@
+package com.example.match_me.repository;
+
+import com.example.match_me.entity.MatchPair;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MatchPairRepository extends JpaRepository<MatchPair, Long> {
+
+    // All callers pass the pair ordered (lowId < highId)
+    @Query("SELECT CASE WHEN COUNT(m) > 0 THEN true ELSE false END FROM MatchPair m " +
+           "WHERE m.userLow.id = :lowId AND m.userHigh.id = :highId")
+    boolean existsByPair(@Param("lowId") Long lowId, @Param("highId") Long highId);
+
+    @Query("SELECT m FROM MatchPair m WHERE m.userLow.id = :userId OR m.userHigh.id = :userId " +
+           "ORDER BY m.matchedAt DESC")
+    List<MatchPair> findByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT CASE WHEN m.userLow.id = :userId THEN m.userHigh.id ELSE m.userLow.id END " +
+           "FROM MatchPair m WHERE m.userLow.id = :userId OR m.userHigh.id = :userId " +
+           "ORDER BY m.matchedAt DESC")
+    List<Long> findPartnerIdsByUserId(@Param("userId") Long userId);
+
+    // Returns 1 if the match was created, 0 if it already existed
+    @Modifying
+    @Query(value = "INSERT INTO matches (user_low_id, user_high_id, matched_at) VALUES (:lowId, :highId, now()) " +
+                   "ON CONFLICT (user_low_id, user_high_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("lowId") Long lowId, @Param("highId") Long highId);
+
+    @Modifying
+    @Query("DELETE FROM MatchPair m WHERE m.userLow.id = :lowId AND m.userHigh.id = :highId")
+    int deleteByPair(@Param("lowId") Long lowId, @Param("highId") Long highId);
+
+    // Serializes concurrent likes on the same pair until the transaction ends
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lockPair(@Param("key") long key);
+
+    // One-off fill from user_likes for databases created before the matches table existed
+    @Modifying
+    @Query(value = "INSERT INTO matches (user_low_id, user_high_id, matched_at) " +
+                   "SELECT a.liker_id, a.liked_id, now() FROM user_likes a " +
+                   "JOIN user_likes b ON b.liker_id = a.liked_id AND b.liked_id = a.liker_id " +
+                   "WHERE a.is_like = true AND b.is_like = true AND a.liker_id < a.liked_id " +
+                   "ON CONFLICT (user_low_id, user_high_id) DO NOTHING", nativeQuery = true)
+    int backfillFromUserLikes();
+}
@@ -0,0 +1,22 @@
+package com.example.match_me.repository;
+
+import com.example.match_me.entity.UserBio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserBioRepository extends JpaRepository<UserBio, Long> {
+
+    // Interests and priority traits are fetched in two separate queries to avoid a cartesian product.
+    // Run both in the same transaction and the second one fills in the bios loaded by the first.
+    @Query("SELECT DISTINCT b FROM UserBio b LEFT JOIN FETCH b.interests WHERE b.id IN :ids")
+    List<UserBio> findWithInterestsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT b FROM UserBio b LEFT JOIN FETCH b.priorityTraits WHERE b.id IN :ids")
+    List<UserBio> findWithPriorityTraitsByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -1,8 +1,11 @@
 package com.example.match_me.repository;
 
+import com.example.match_me.DTO.UserLikeDTO;
 import com.example.match_me.entity.User;
 import com.example.match_me.entity.UserLike;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -84,5 +87,30 @@ public interface UserLikeRepository extends JpaRepository<UserLike, Long> {
 
     @Query("SELECT ul FROM UserLike ul WHERE ul.liker.id = :likerId AND ul.liked.id = :likedId")
     Optional<UserLike> findByLikerIdAndLikedId(@Param("likerId") Long likerId, @Param("likedId") Long likedId);
+
+    // Returns 1 if the interaction was created, 0 if the pair already had one.
+    // Unknown user ids still fail on the foreign keys.
+    @Modifying
+    @Query(value = "INSERT INTO user_likes (liker_id, liked_id, is_like) VALUES (:likerId, :likedId, :like) " +
+                   "ON CONFLICT (liker_id, liked_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("likerId") Long likerId, @Param("likedId") Long likedId, @Param("like") boolean like);
+
+    // Keyset pages, newest first: rows with id < :beforeId, display names joined in the same query
+    String PAGE_SELECT = "SELECT new com.example.match_me.DTO.UserLikeDTO(ul.id, ul.liker.id, ul.liked.id, " +
+           "COALESCE(lp.displayName, CONCAT('User ', CAST(ul.liker.id AS String))), " +
+           "COALESCE(dp.displayName, CONCAT('User ', CAST(ul.liked.id AS String))), ul.like) " +
+           "FROM UserLike ul " +
+           "LEFT JOIN UserProfile lp ON lp.id = ul.liker.id " +
+           "LEFT JOIN UserProfile dp ON dp.id = ul.liked.id ";
+
+    @Query(PAGE_SELECT + "WHERE ul.liker.id = :userId AND ul.id < :beforeId ORDER BY ul.id DESC")
+    List<UserLikeDTO> findPageByLikerId(@Param("userId") Long userId, @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE ul.liker.id = :userId AND ul.like = :like AND ul.id < :beforeId ORDER BY ul.id DESC")
+    List<UserLikeDTO> findPageByLikerIdAndLike(@Param("userId") Long userId, @Param("like") boolean like,
+                                               @Param("beforeId") Long beforeId, Pageable pageable);
+
+    @Query(PAGE_SELECT + "WHERE ul.liked.id = :userId AND ul.like = :like AND ul.id < :beforeId ORDER BY ul.id DESC")
+    List<UserLikeDTO> findPageByLikedIdAndLike(@Param("userId") Long userId, @Param("like") boolean like,
+                                               @Param("beforeId") Long beforeId, Pageable pageable);
 }
- 
\ No newline at end of file
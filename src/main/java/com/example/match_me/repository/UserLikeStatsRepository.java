@@ -0,0 +1,9 @@
+package com.example.match_me.repository;
+
+import com.example.match_me.entity.UserLikeStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserLikeStatsRepository extends JpaRepository<UserLikeStats, Long> {
+}
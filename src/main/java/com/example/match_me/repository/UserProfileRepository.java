@@ -0,0 +1,22 @@
+package com.example.match_me.repository;
+
+import com.example.match_me.entity.UserProfile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserProfileRepository extends JpaRepository<UserProfile, Long> {
+
+    // Batch load for list screens (profile id == user id)
+    @Query("SELECT p FROM UserProfile p WHERE p.id IN :ids")
+    List<UserProfile> findByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.displayName FROM UserProfile p WHERE p.id = :id")
+    Optional<String> findDisplayNameById(@Param("id") Long id);
+}
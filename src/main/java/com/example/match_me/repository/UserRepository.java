@@ -2,10 +2,17 @@ package com.example.match_me.repository;
 
 import com.example.match_me.entity.User;
 
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByEmail(String email);
+
+    @Query("SELECT u.email FROM User u WHERE u.id = :id")
+    Optional<String> findEmailById(@Param("id") Long id);
     // you can add custom finders here, e.g.:
     // Optional<User> findByEmail(String email);
 }
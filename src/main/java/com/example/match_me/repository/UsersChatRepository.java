@@ -1,14 +1,17 @@
 package com.example.match_me.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.match_me.DTO.UsersChatDTO;
 import com.example.match_me.entity.User;
 import com.example.match_me.entity.UsersChat;
 
@@ -19,6 +22,44 @@ public interface UsersChatRepository extends JpaRepository<UsersChat, Long> {
     @Query("SELECT uc FROM UsersChat uc WHERE uc.chat.id = :chatId ORDER BY uc.sentAt DESC")
     Page<UsersChat> findMessagesByChatId(@Param("chatId") Long chatId, Pageable pageable);
     
+    // Newest messages of a chat as DTOs, sender display name joined in (no entity loads)
+    @Query("SELECT new com.example.match_me.DTO.UsersChatDTO(uc.id, uc.chat.id, uc.sender.id, " +
+           "COALESCE(p.displayName, 'Unknown'), uc.messageContent, uc.sentAt) " +
+           "FROM UsersChat uc LEFT JOIN UserProfile p ON p.id = uc.sender.id " +
+           "WHERE uc.chat.id = :chatId ORDER BY uc.sentAt DESC, uc.id DESC")
+    List<UsersChatDTO> findRecentMessageDTOs(@Param("chatId") Long chatId, Pageable pageable);
+
+    // Keyset history: messages strictly older / newer than the cursor message, no COUNT.
+    // The cursor row ("anchor") is joined in, so seeking costs the same at any depth.
+    String SEEK_SELECT = "SELECT new com.example.match_me.DTO.UsersChatDTO(uc.id, uc.chat.id, uc.sender.id, " +
+           "COALESCE(p.displayName, 'Unknown'), uc.messageContent, uc.sentAt) " +
+           "FROM UsersChat uc JOIN UsersChat anchor ON anchor.id = :cursorId AND anchor.chat.id = :chatId " +
+           "LEFT JOIN UserProfile p ON p.id = uc.sender.id " +
+           "WHERE uc.chat.id = :chatId ";
+
+    @Query(SEEK_SELECT +
+           "AND (uc.sentAt < anchor.sentAt OR (uc.sentAt = anchor.sentAt AND uc.id < anchor.id)) " +
+           "ORDER BY uc.sentAt DESC, uc.id DESC")
+    Slice<UsersChatDTO> findMessagesBefore(@Param("chatId") Long chatId, @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(SEEK_SELECT +
+           "AND (uc.sentAt > anchor.sentAt OR (uc.sentAt = anchor.sentAt AND uc.id > anchor.id)) " +
+           "ORDER BY uc.sentAt ASC, uc.id ASC")
+    Slice<UsersChatDTO> findMessagesAfter(@Param("chatId") Long chatId, @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query("SELECT new com.example.match_me.DTO.UsersChatDTO(uc.id, uc.chat.id, uc.sender.id, " +
+           "COALESCE(p.displayName, 'Unknown'), uc.messageContent, uc.sentAt) " +
+           "FROM UsersChat uc LEFT JOIN UserProfile p ON p.id = uc.sender.id " +
+           "WHERE uc.chat.id = :chatId ORDER BY uc.sentAt DESC, uc.id DESC")
+    Slice<UsersChatDTO> findLatestMessages(@Param("chatId") Long chatId, Pageable pageable);
+
+    @Query("SELECT uc FROM UsersChat uc WHERE uc.sender.id = :senderId AND uc.clientMessageId = :clientMessageId")
+    Optional<UsersChat> findBySenderIdAndClientMessageId(@Param("senderId") Long senderId,
+                                                         @Param("clientMessageId") String clientMessageId);
+
+    @Query("SELECT COUNT(uc) FROM UsersChat uc WHERE uc.chat.id = :chatId")
+    long countByChatId(@Param("chatId") Long chatId);
+    
     // Find all messages where a user is involved
     @Query("SELECT uc FROM UsersChat uc WHERE " +
            "uc.chat.user1.id = :userId OR uc.chat.user2.id = :userId " +
@@ -0,0 +1,31 @@
+package com.example.match_me.security;
+
+import java.util.List;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+// Authenticated principal of a STOMP session, resolved once at CONNECT.
+// getName() stays the email, so user destinations (/user/queue/...) keep working,
+// while handlers read the user id and display name without another lookup.
+public class StompUserPrincipal extends UsernamePasswordAuthenticationToken {
+
+    public static final String SESSION_USER_ID = "userId";
+    public static final String SESSION_DISPLAY_NAME = "displayName";
+
+    private final Long userId;
+    private final String displayName;
+
+    public StompUserPrincipal(Long userId, String email, String displayName) {
+        super(email, null, List.of());
+        this.userId = userId;
+        this.displayName = displayName;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.match_me.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.match_me.DTO.ChatMessageAck;
+import com.example.match_me.DTO.UsersChatDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Group-commit mode for chat messages (chat.write-mode=group-commit).
+// ChatController broadcasts a message right away and queues it here; the "chat-writer" thread
+// collects whatever arrives within one flush interval and stores it with one multi-row insert
+// into users_chat. The sender gets a ChatMessageAck on /user/queue/chat-acks per message.
+//
+// Rows are keyed by (sender_id, client_message_id), so a client that resends a message after a
+// "failed" ack or a reconnect never creates a duplicate.
+@Component
+public class ChatMessageWriter {
+
+    public record PendingMessage(String clientMessageId, Long chatId, Long senderId, String senderEmail,
+                                 String content, LocalDateTime sentAt) { }
+
+    private record MessageKey(Long senderId, String clientMessageId) { }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RecentChatCache recentChatCache;
+    private final DisplayNameCache displayNameCache;
+    private final ChatSummaryService chatSummaryService;
+
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int maxBatchSize;
+
+    private final BlockingQueue<PendingMessage> queue;
+    private volatile boolean running = false;
+    private Thread writerThread;
+
+    private final Counter failedCounter;
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+
+    public ChatMessageWriter(NamedParameterJdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             SimpMessagingTemplate messagingTemplate,
+                             RecentChatCache recentChatCache,
+                             DisplayNameCache displayNameCache,
+                             ChatSummaryService chatSummaryService,
+                             MeterRegistry meterRegistry,
+                             @Value("${chat.write-mode:sync}") String writeMode,
+                             @Value("${chat.group-commit.queue-capacity:10000}") int queueCapacity,
+                             @Value("${chat.group-commit.flush-interval-ms:10}") long flushIntervalMs,
+                             @Value("${chat.group-commit.max-batch-size:200}") int maxBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.messagingTemplate = messagingTemplate;
+        this.recentChatCache = recentChatCache;
+        this.displayNameCache = displayNameCache;
+        this.chatSummaryService = chatSummaryService;
+        this.enabled = "group-commit".equalsIgnoreCase(writeMode);
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("chat.group-commit.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.failedCounter = Counter.builder("chat.group-commit.failed").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("chat.group-commit.batch.size").register(meterRegistry);
+        this.flushTimer = Timer.builder("chat.group-commit.flush").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "chat-writer");
+        writerThread.start();
+        System.out.println("Chat group-commit enabled (interval=" + flushIntervalMs + "ms, max batch=" + maxBatchSize + ")");
+    }
+
+    // Stop accepting messages and let the writer drain whatever is still queued
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // false = queue full or shutting down, the caller should save synchronously instead
+    public boolean submit(PendingMessage message) {
+        return running && queue.offer(message);
+    }
+
+    public void sendAck(String senderEmail, ChatMessageAck ack) {
+        messagingTemplate.convertAndSendToUser(senderEmail, "/queue/chat-acks", ack);
+    }
+
+    private void runWriter() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Group-commit window: collect whatever else arrives within one interval
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<PendingMessage> batch) {
+        // A resend of the same client id within one batch is written once
+        Map<MessageKey, PendingMessage> unique = new LinkedHashMap<>();
+        for (PendingMessage message : batch) {
+            unique.putIfAbsent(new MessageKey(message.senderId(), message.clientMessageId()), message);
+        }
+        batchSizes.record(unique.size());
+
+        Map<MessageKey, Long> ids = new HashMap<>();
+        List<MessageKey> inserted = new ArrayList<>();
+        List<UsersChatDTO> saved = new ArrayList<>();
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                insertMessages(new ArrayList<>(unique.values()), ids, inserted);
+                for (MessageKey key : inserted) {
+                    PendingMessage message = unique.get(key);
+                    saved.add(new UsersChatDTO(ids.get(key), message.chatId(), message.senderId(),
+                        displayNameCache.getDisplayName(message.senderId()), message.content(), message.sentAt()));
+                }
+                // Inbox rows commit together with the messages
+                chatSummaryService.recordMessages(saved);
+            }));
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            System.err.println("ERROR flushing " + batch.size() + " queued chat messages: " + e.getMessage());
+            for (PendingMessage message : batch) {
+                sendAck(message.senderEmail(), new ChatMessageAck(message.clientMessageId(), null, message.chatId(), "failed"));
+            }
+            return;
+        }
+
+        saved.forEach(recentChatCache::append);
+        for (PendingMessage message : batch) {
+            Long id = ids.get(new MessageKey(message.senderId(), message.clientMessageId()));
+            sendAck(message.senderEmail(), new ChatMessageAck(message.clientMessageId(), id, message.chatId(), "saved"));
+        }
+    }
+
+    // One multi-row insert; a conflicting (already stored) message returns its existing id
+    private void insertMessages(List<PendingMessage> messages, Map<MessageKey, Long> ids, List<MessageKey> inserted) {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO users_chat (chat_id, sender_id, message_content, sent_at, client_message_id) VALUES ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < messages.size(); i++) {
+            PendingMessage message = messages.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:c").append(i).append(", :s").append(i).append(", :m").append(i)
+               .append(", :t").append(i).append(", :k").append(i).append(")");
+            params.addValue("c" + i, message.chatId());
+            params.addValue("s" + i, message.senderId());
+            params.addValue("m" + i, message.content());
+            params.addValue("t" + i, Timestamp.valueOf(message.sentAt()));
+            params.addValue("k" + i, message.clientMessageId());
+        }
+        sql.append(" ON CONFLICT (sender_id, client_message_id) DO UPDATE SET client_message_id = EXCLUDED.client_message_id " +
+                   "RETURNING id, sender_id, client_message_id, (xmax = 0) AS inserted");
+        jdbcTemplate.query(sql.toString(), params, rs -> {
+            MessageKey key = new MessageKey(rs.getLong("sender_id"), rs.getString("client_message_id"));
+            ids.put(key, rs.getLong("id"));
+            if (rs.getBoolean("inserted")) {
+                inserted.add(key);
+            }
+        });
+    }
+}
@@ -1,15 +1,25 @@
 package com.example.match_me.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.example.match_me.DTO.UsersChatDTO;
 import com.example.match_me.entity.Chat;
@@ -34,8 +44,23 @@ public class ChatService {
     @Autowired
     private LikeService likeService;
     
+    @Autowired
+    private RecentChatCache recentChatCache;
+    
+    @Autowired
+    private ChatSummaryService chatSummaryService;
+
+    @Autowired
+    private OneTimeBackfills oneTimeBackfills;
+    
     @Transactional
     public UsersChatDTO saveMessage(Long senderId, Long recipientId, String messageContent) {
+        return saveMessage(senderId, recipientId, messageContent, null);
+    }
+    
+    // clientMessageId makes the save idempotent: a resend returns the message stored the first time
+    @Transactional
+    public UsersChatDTO saveMessage(Long senderId, Long recipientId, String messageContent, String clientMessageId) {
         try {
             // Verify users are matched before allowing message saving
             if (!likeService.areUsersMatched(senderId, recipientId)) {
@@ -43,6 +68,13 @@ public class ChatService {
                 throw new IllegalArgumentException("Users are not matched - chat not allowed");
             }
             
+            if (clientMessageId != null) {
+                Optional<UsersChat> existing = usersChatRepository.findBySenderIdAndClientMessageId(senderId, clientMessageId);
+                if (existing.isPresent()) {
+                    return convertToDTO(existing.get());
+                }
+            }
+            
             // Get the users
             Optional<User> senderOpt = userRepository.findById(senderId);
             Optional<User> recipientOpt = userRepository.findById(recipientId);
@@ -55,17 +87,21 @@ public class ChatService {
             User sender = senderOpt.get();
             User recipient = recipientOpt.get();
             
-            // Find or create chat between users
-            Chat chat = chatRepository.findChatBetweenUsers(senderId, recipientId)
-                    .orElseGet(() -> {
-                        Chat newChat = new Chat(sender, recipient);
-                        return chatRepository.save(newChat);
-                    });
+            // Find or create chat between users (safe against a concurrent first message)
+            Long chatId = findChatId(sender.getId(), recipient.getId());
+            if (chatId == null) {
+                chatId = createChat(sender.getId(), recipient.getId());
+            }
+            Chat chat = chatRepository.getReferenceById(chatId);
             
             UsersChat chatMessage = new UsersChat(chat, sender, messageContent);
+            chatMessage.setClientMessageId(clientMessageId);
             UsersChat savedMessage = usersChatRepository.save(chatMessage);
             
-            return convertToDTO(savedMessage);
+            UsersChatDTO dto = convertToDTO(savedMessage);
+            chatSummaryService.recordMessages(List.of(dto));
+            appendAfterCommit(dto);
+            return dto;
             
         } catch (Exception e) {
             System.err.println("ERROR in ChatService.saveMessage(): " + e.getMessage());
@@ -109,18 +145,19 @@ public class ChatService {
             }
             
             // Find the chat between users
-            Optional<Chat> chatOpt = chatRepository.findChatBetweenUsers(user1Id, user2Id);
-            if (chatOpt.isEmpty()) {
+            Long chatId = findChatId(user1Id, user2Id);
+            if (chatId == null) {
                 return Page.empty(); // Return empty page if no chat exists
             }
             Pageable pageable = PageRequest.of(page, size, Sort.by("sentAt").descending());
-            Page<UsersChat> messagesPage = usersChatRepository.findMessagesByChatId(chatOpt.get().getId(), pageable);
             
-            // Limit the results from the end (most recent) and reverse to get chronological order
-            // The original code had a skip(Math.max(0, messages.getSize() - limit)) and then reverse.
-            // This logic is now handled by the Pageable.of(page, size, Sort.by("sentAt").descending())
-            // and the mapping will return the correct order.
+            // Pages within the last few messages of a chat come from memory
+            RecentChatCache.Tail recent = recentChatCache.getRecent(chatId, page * size, size, this::loadRecentTail);
+            if (recent != null) {
+                return new PageImpl<>(recent.newestFirst(), pageable, recent.totalMessages());
+            }
             
+            Page<UsersChat> messagesPage = usersChatRepository.findMessagesByChatId(chatId, pageable);
             return messagesPage.map(this::convertToDTO);
                     
         } catch (Exception e) {
@@ -132,6 +169,64 @@ public class ChatService {
     
 
     
+    // Keyset (seek) history without total counts. Pass the id of the oldest loaded message as
+    // `before` to scroll back, or the newest as `after` to catch up; neither gives the latest page.
+    // Content is always in chronological order.
+    public Slice<UsersChatDTO> getChatHistorySlice(Long user1Id, Long user2Id, Long before, Long after, int size) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Use either before or after, not both");
+        }
+        if (!likeService.areUsersMatched(user1Id, user2Id)) {
+            throw new IllegalArgumentException("Users are not matched - chat not allowed");
+        }
+        Long chatId = findChatId(user1Id, user2Id);
+        if (chatId == null) {
+            return new SliceImpl<>(List.of());
+        }
+        
+        Pageable pageable = PageRequest.of(0, size);
+        if (after != null) {
+            return usersChatRepository.findMessagesAfter(chatId, after, pageable);
+        }
+        Slice<UsersChatDTO> newestFirst = before != null
+                ? usersChatRepository.findMessagesBefore(chatId, before, pageable)
+                : usersChatRepository.findLatestMessages(chatId, pageable);
+        List<UsersChatDTO> chronological = new ArrayList<>(newestFirst.getContent());
+        Collections.reverse(chronological);
+        return new SliceImpl<>(chronological, pageable, newestFirst.hasNext());
+    }
+    
+    // Messages after `afterId` (chronological, at most `size`) for reconnect sync; from the recent
+    // ring when the cursor is still in it, otherwise through the (chat_id, sent_at, id) index.
+    // Without a cursor the latest messages are returned.
+    public Slice<UsersChatDTO> getMessagesSince(Long userId, Long otherUserId, Long afterId, int size) {
+        if (!likeService.areUsersMatched(userId, otherUserId)) {
+            throw new IllegalArgumentException("Users are not matched - chat not allowed");
+        }
+        Long chatId = findChatId(userId, otherUserId);
+        if (chatId == null) {
+            return new SliceImpl<>(List.of());
+        }
+        Pageable pageable = PageRequest.of(0, size);
+        if (afterId == null) {
+            return getChatHistorySlice(userId, otherUserId, null, null, size);
+        }
+        List<UsersChatDTO> cached = recentChatCache.getAfter(chatId, afterId, size + 1, this::loadRecentTail);
+        if (cached != null) {
+            boolean hasMore = cached.size() > size;
+            return new SliceImpl<>(hasMore ? cached.subList(0, size) : cached, pageable, hasMore);
+        }
+        return usersChatRepository.findMessagesAfter(chatId, afterId, pageable);
+    }
+
+    public Long getChatId(Long user1Id, Long user2Id) {
+        return findChatId(user1Id, user2Id);
+    }
+    
+    public boolean isChatMember(Long userId, Long chatId) {
+        return chatRepository.isMember(chatId, userId);
+    }
+    
     public List<User> getConversationPartners(Long userId) {
         return usersChatRepository.findConversationPartners(userId);
     }
@@ -143,22 +238,95 @@ public class ChatService {
         }
         
         // Find or create chat between users
-        Optional<Chat> chatOpt = chatRepository.findChatBetweenUsers(user1Id, user2Id);
-        if (chatOpt.isPresent()) {
-            return chatOpt.get().getId();
+        Long chatId = findChatId(user1Id, user2Id);
+        if (chatId != null) {
+            return chatId;
         }
         
         // Create new chat if it doesn't exist
-        Optional<User> user1Opt = userRepository.findById(user1Id);
-        Optional<User> user2Opt = userRepository.findById(user2Id);
-        
-        if (user1Opt.isEmpty() || user2Opt.isEmpty()) {
+        if (!userRepository.existsById(user1Id) || !userRepository.existsById(user2Id)) {
             throw new IllegalArgumentException("User not found");
         }
-        
-        Chat newChat = new Chat(user1Opt.get(), user2Opt.get());
-        Chat savedChat = chatRepository.save(newChat);
-        return savedChat.getId();
+        return createChat(user1Id, user2Id);
+    }
+    
+    private Long createChat(Long user1Id, Long user2Id) {
+        Long chatId = chatRepository.insertOrGetId(user1Id, user2Id);
+        // A chat created in a transaction that rolls back must not stay cached
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentChatCache.putChatId(user1Id, user2Id, chatId);
+                }
+            });
+        } else {
+            recentChatCache.putChatId(user1Id, user2Id, chatId);
+        }
+        return chatId;
+    }
+    
+    private Long findChatId(Long user1Id, Long user2Id) {
+        Long chatId = recentChatCache.getChatId(user1Id, user2Id);
+        if (chatId == null) {
+            Optional<Long> found = chatRepository.findIdByPair(Math.min(user1Id, user2Id), Math.max(user1Id, user2Id));
+            if (found.isEmpty()) {
+                return null;
+            }
+            chatId = found.get();
+            recentChatCache.putChatId(user1Id, user2Id, chatId);
+        }
+        return chatId;
+    }
+    
+    private RecentChatCache.Tail loadRecentTail(Long chatId) {
+        List<UsersChatDTO> newestFirst = usersChatRepository.findRecentMessageDTOs(
+                chatId, PageRequest.of(0, recentChatCache.getMessagesPerChat()));
+        long total = newestFirst.size() < recentChatCache.getMessagesPerChat()
+                ? newestFirst.size()
+                : usersChatRepository.countByChatId(chatId);
+        return new RecentChatCache.Tail(newestFirst, total);
+    }
+    
+    // Only committed messages may show up in the recent-messages cache
+    private void appendAfterCommit(UsersChatDTO dto) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentChatCache.append(dto);
+                }
+            });
+        } else {
+            recentChatCache.append(dto);
+        }
+    }
+    
+    private record PairBackfill(int movedMessages, int mergedChats, int backfilled) { }
+
+    // Give chats created before the pair columns existed their ordered pair, merging duplicates.
+    // Every statement only touches chats still without a pair (or their duplicates), so a re-run is a no-op.
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void backfillChatPairs() {
+        PairBackfill result = oneTimeBackfills.runOnce("chat-pairs", () -> {
+            if (!chatRepository.existsChatWithoutPair()) {
+                return new PairBackfill(0, 0, 0);
+            }
+            int movedMessages = chatRepository.moveMessagesToKeeperChats();
+            int mergedChats = chatRepository.deleteDuplicateChats();
+            int backfilled = chatRepository.backfillPairColumns();
+            return new PairBackfill(movedMessages, mergedChats, backfilled);
+        });
+        if (result == null || result.backfilled() == 0) {
+            return;
+        }
+        // After commit, so no reader caches a merged chat again
+        if (result.mergedChats() > 0) {
+            recentChatCache.clear();
+        }
+        System.out.println("Backfilled chat pairs for " + result.backfilled() + " chats (merged " + result.mergedChats()
+            + " duplicate chats, " + result.movedMessages() + " messages)");
     }
     
     public boolean hasChatHistory(Long user1Id, Long user2Id) {
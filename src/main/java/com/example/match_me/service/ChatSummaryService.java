@@ -0,0 +1,143 @@
+package com.example.match_me.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.match_me.DTO.ConversationSummaryDTO;
+import com.example.match_me.DTO.UsersChatDTO;
+import com.example.match_me.repository.ChatSummaryRepository;
+
+// Keeps chat_summaries (the inbox) up to date. Every saved message updates both participants'
+// rows in the same transaction: preview, last activity, and the recipient's unread count.
+// Read watermarks are written by ReadReceiptService.
+@Service
+public class ChatSummaryService {
+
+    private static final int SNIPPET_LENGTH = 100;
+
+    // Both participants of each chat get a row; the sender's unread count is reset (replying reads the chat)
+    private static final String UPSERT_PREFIX =
+        "INSERT INTO chat_summaries (user_id, chat_id, other_user_id, last_message_id, last_message_snippet, " +
+        "last_message_at, last_sender_id, unread_count, read_message_id) " +
+        "SELECT p.user_id, c.id, p.other_id, v.last_id, v.snippet, v.sent_at, v.last_sender, " +
+        "CASE WHEN p.user_id = v.last_sender THEN 0 " +
+        "ELSE v.total - CASE p.user_id WHEN v.sender_a THEN v.count_a WHEN v.sender_b THEN v.count_b ELSE 0 END END, " +
+        "CASE WHEN p.user_id = v.last_sender THEN v.last_id ELSE 0 END " +
+        "FROM (VALUES ";
+    private static final String UPSERT_SUFFIX =
+        ") v(chat_id, last_id, snippet, sent_at, last_sender, total, sender_a, count_a, sender_b, count_b) " +
+        "JOIN chats c ON c.id = v.chat_id " +
+        "CROSS JOIN LATERAL (VALUES (c.user1_id, c.user2_id), (c.user2_id, c.user1_id)) p(user_id, other_id) " +
+        "ON CONFLICT (user_id, chat_id) DO UPDATE SET " +
+        "last_message_id = GREATEST(chat_summaries.last_message_id, EXCLUDED.last_message_id), " +
+        "last_message_snippet = CASE WHEN EXCLUDED.last_message_id > chat_summaries.last_message_id " +
+        "THEN EXCLUDED.last_message_snippet ELSE chat_summaries.last_message_snippet END, " +
+        "last_message_at = CASE WHEN EXCLUDED.last_message_id > chat_summaries.last_message_id " +
+        "THEN EXCLUDED.last_message_at ELSE chat_summaries.last_message_at END, " +
+        "last_sender_id = CASE WHEN EXCLUDED.last_message_id > chat_summaries.last_message_id " +
+        "THEN EXCLUDED.last_sender_id ELSE chat_summaries.last_sender_id END, " +
+        "unread_count = CASE WHEN EXCLUDED.last_sender_id = chat_summaries.user_id THEN 0 " +
+        "ELSE chat_summaries.unread_count + EXCLUDED.unread_count END, " +
+        "read_message_id = GREATEST(chat_summaries.read_message_id, EXCLUDED.read_message_id)";
+
+    private final ChatSummaryRepository chatSummaryRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final OneTimeBackfills oneTimeBackfills;
+
+    public ChatSummaryService(ChatSummaryRepository chatSummaryRepository, NamedParameterJdbcTemplate jdbcTemplate,
+                              OneTimeBackfills oneTimeBackfills) {
+        this.chatSummaryRepository = chatSummaryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.oneTimeBackfills = oneTimeBackfills;
+    }
+
+    // Newest message and per-sender counts of one chat within a batch
+    private static class ChatDelta {
+        UsersChatDTO last;
+        int total;
+        final Map<Long, Integer> bySender = new LinkedHashMap<>(2);
+    }
+
+    // Must run inside the transaction that saved the messages
+    public void recordMessages(List<UsersChatDTO> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        // One row per chat: a statement may not update the same summary twice
+        Map<Long, ChatDelta> byChat = new LinkedHashMap<>();
+        for (UsersChatDTO message : messages) {
+            ChatDelta delta = byChat.computeIfAbsent(message.getChatId(), id -> new ChatDelta());
+            if (delta.last == null || message.getId() > delta.last.getId()) {
+                delta.last = message;
+            }
+            delta.total++;
+            delta.bySender.merge(message.getSenderId(), 1, Integer::sum);
+        }
+
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        int i = 0;
+        for (Map.Entry<Long, ChatDelta> entry : byChat.entrySet()) {
+            ChatDelta delta = entry.getValue();
+            List<Map.Entry<Long, Integer>> senders = List.copyOf(delta.bySender.entrySet());
+            Map.Entry<Long, Integer> senderA = senders.get(0);
+            Map.Entry<Long, Integer> senderB = senders.size() > 1 ? senders.get(1) : Map.entry(senderA.getKey(), 0);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(:c").append(i).append(" AS bigint), CAST(:l").append(i).append(" AS bigint), ")
+               .append("CAST(:sn").append(i).append(" AS varchar), CAST(:t").append(i).append(" AS timestamp), ")
+               .append("CAST(:ls").append(i).append(" AS bigint), CAST(:n").append(i).append(" AS integer), ")
+               .append("CAST(:sa").append(i).append(" AS bigint), CAST(:na").append(i).append(" AS integer), ")
+               .append("CAST(:sb").append(i).append(" AS bigint), CAST(:nb").append(i).append(" AS integer))");
+            params.addValue("c" + i, entry.getKey());
+            params.addValue("l" + i, delta.last.getId());
+            params.addValue("sn" + i, snippet(delta.last.getMessageContent()));
+            params.addValue("t" + i, Timestamp.valueOf(delta.last.getSentAt()));
+            params.addValue("ls" + i, delta.last.getSenderId());
+            params.addValue("n" + i, delta.total);
+            params.addValue("sa" + i, senderA.getKey());
+            params.addValue("na" + i, senderA.getValue());
+            params.addValue("sb" + i, senderB.getKey());
+            params.addValue("nb" + i, senderB.getValue());
+            i++;
+        }
+        sql.append(UPSERT_SUFFIX);
+        jdbcTemplate.update(sql.toString(), params);
+    }
+
+    // Newest first; pass the last entry's lastMessageAt and chatId to get the next page
+    public Slice<ConversationSummaryDTO> getInbox(Long userId, LocalDateTime beforeAt, Long beforeChatId, int limit) {
+        if (beforeAt == null || beforeChatId == null) {
+            return chatSummaryRepository.findInbox(userId, PageRequest.of(0, limit));
+        }
+        return chatSummaryRepository.findInboxBefore(userId, beforeAt, beforeChatId, PageRequest.of(0, limit));
+    }
+
+    // Runs after ChatService.backfillChatPairs, so merged duplicate chats do not get a summary.
+    // ON CONFLICT DO NOTHING keeps rows that messages sent since startup already created.
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void backfillSummaries() {
+        Integer created = oneTimeBackfills.runOnce("chat-summaries", chatSummaryRepository::backfillFromMessages);
+        if (created != null && created > 0) {
+            System.out.println("Backfilled " + created + " chat summaries");
+        }
+    }
+
+    private static String snippet(String content) {
+        return content.length() > SNIPPET_LENGTH ? content.substring(0, SNIPPET_LENGTH) : content;
+    }
+}
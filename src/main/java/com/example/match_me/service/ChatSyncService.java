@@ -0,0 +1,193 @@
+package com.example.match_me.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.match_me.DTO.ChatSyncBatch;
+import com.example.match_me.DTO.ChatSyncRequest;
+import com.example.match_me.DTO.UsersChatDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Resumable chat sync. After a reconnect the client sends the newest message id it has per chat
+// (/app/chat.sync) and only newer messages are streamed back to that session, in batches, on
+// /user/queue/chat-sync, instead of every chat refetching its recent history page.
+//
+// Clients ack what they have applied (/app/chat.sync.ack). The acked id is kept per session and,
+// when the session ends, per user, so a later sync that does not send a cursor for a chat resumes
+// from the last acknowledged message. Only chats the user belongs to are kept, and at most
+// chat.sync.max-chats of them per session and per user.
+@Service
+public class ChatSyncService {
+
+    private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int batchSize;
+    private final int maxMessagesPerChat;
+    private final int maxChats;
+
+    // sessionId -> cursors acked on that session
+    private final Map<String, SessionCursors> sessions = new ConcurrentHashMap<>();
+    // userId -> chatId -> last acked message id, from sessions that have ended
+    private final Map<Long, Map<Long, Long>> ackedByUser;
+
+    private final Counter syncCounter;
+    private final Counter messagesCounter;
+    private final Counter truncatedCounter;
+    private final Counter rejectedAckCounter;
+
+    private record SessionCursors(Long userId, Map<Long, Long> ackedByChat) { }
+
+    public ChatSyncService(ChatService chatService,
+                           SimpMessagingTemplate messagingTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${chat.sync.batch-size:50}") int batchSize,
+                           @Value("${chat.sync.max-messages-per-chat:500}") int maxMessagesPerChat,
+                           @Value("${chat.sync.max-chats:200}") int maxChats,
+                           @Value("${chat.sync.acked-users:10000}") int ackedUsers) {
+        this.chatService = chatService;
+        this.messagingTemplate = messagingTemplate;
+        this.batchSize = batchSize;
+        this.maxMessagesPerChat = maxMessagesPerChat;
+        this.maxChats = maxChats;
+        this.ackedByUser = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<Long, Long>> eldest) {
+                return size() > ackedUsers;
+            }
+        });
+        this.syncCounter = Counter.builder("chat.sync.requests").register(meterRegistry);
+        this.messagesCounter = Counter.builder("chat.sync.messages").register(meterRegistry);
+        this.truncatedCounter = Counter.builder("chat.sync.truncated")
+            .description("Chats too far behind to sync, the client reloads them instead")
+            .register(meterRegistry);
+        this.rejectedAckCounter = Counter.builder("chat.sync.acks.rejected")
+            .description("Acks for a chat the user is not in, or over the per-session chat limit")
+            .register(meterRegistry);
+        Gauge.builder("chat.sync.sessions", sessions, Map::size).register(meterRegistry);
+    }
+
+    public void sync(Long userId, String email, String sessionId, ChatSyncRequest request) {
+        syncCounter.increment();
+        Map<Long, Long> lastSeen = request.getLastSeen() != null ? request.getLastSeen() : Map.of();
+        int chats = 0;
+        for (Map.Entry<Long, Long> entry : lastSeen.entrySet()) {
+            if (++chats > maxChats) {
+                break;
+            }
+            try {
+                syncChat(userId, entry.getKey(), entry.getValue(), email, sessionId);
+            } catch (IllegalArgumentException e) {
+                // Not matched (any more); nothing to sync for this chat
+            } catch (Exception e) {
+                System.err.println("Error syncing chat with user " + entry.getKey() + " for user " + userId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void syncChat(Long userId, Long otherUserId, Long lastSeenId, String email, String sessionId) {
+        Long chatId = chatService.getChatId(userId, otherUserId);
+        if (chatId == null) {
+            return;
+        }
+        Long cursor = lastSeenId != null ? lastSeenId : getAcked(userId, sessionId, chatId);
+        if (cursor == null) {
+            // Nothing known about this chat on the client; its normal history load covers it
+            return;
+        }
+        int sent = 0;
+        while (true) {
+            Slice<UsersChatDTO> slice = chatService.getMessagesSince(userId, otherUserId, cursor, batchSize);
+            List<UsersChatDTO> messages = slice.getContent();
+            sent += messages.size();
+            boolean truncated = slice.hasNext() && sent >= maxMessagesPerChat;
+            boolean complete = !slice.hasNext() || truncated;
+            if (!messages.isEmpty() || complete) {
+                sendToSession(email, sessionId, new ChatSyncBatch(chatId, otherUserId, messages, complete, truncated));
+                messagesCounter.increment(messages.size());
+            }
+            if (truncated) {
+                truncatedCounter.increment();
+            }
+            if (complete || messages.isEmpty()) {
+                return;
+            }
+            cursor = messages.get(messages.size() - 1).getId();
+        }
+    }
+
+    public void ack(Long userId, String sessionId, Long chatId, Long messageId) {
+        if (chatId == null || messageId == null) {
+            return;
+        }
+        SessionCursors cursors = sessions.computeIfAbsent(sessionId,
+            id -> new SessionCursors(userId, new ConcurrentHashMap<>()));
+        Map<Long, Long> ackedByChat = cursors.ackedByChat();
+        // Checked once per chat and session, later acks for it only move the cursor
+        if (!ackedByChat.containsKey(chatId)
+                && (ackedByChat.size() >= maxChats || !chatService.isChatMember(userId, chatId))) {
+            rejectedAckCounter.increment();
+            return;
+        }
+        ackedByChat.merge(chatId, messageId, Math::max);
+    }
+
+    // Last message id the given session has acknowledged for a chat, or null
+    public Long getSessionAcked(String sessionId, Long chatId) {
+        SessionCursors cursors = sessions.get(sessionId);
+        return cursors != null ? cursors.ackedByChat().get(chatId) : null;
+    }
+
+    // Keep the session's cursors for the user's next connection
+    public void sessionClosed(String sessionId) {
+        SessionCursors cursors = sessions.remove(sessionId);
+        if (cursors == null || cursors.ackedByChat().isEmpty()) {
+            return;
+        }
+        synchronized (ackedByUser) {
+            Map<Long, Long> acked = ackedByUser.computeIfAbsent(cursors.userId(), id -> newUserAcked());
+            cursors.ackedByChat().forEach((chatId, messageId) -> acked.merge(chatId, messageId, Math::max));
+        }
+    }
+
+    // The user's most recently acked chats, other sessions' chats evict the oldest
+    private Map<Long, Long> newUserAcked() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxChats;
+            }
+        });
+    }
+
+    private Long getAcked(Long userId, String sessionId, Long chatId) {
+        Long acked = getSessionAcked(sessionId, chatId);
+        if (acked != null) {
+            return acked;
+        }
+        Map<Long, Long> userAcked = ackedByUser.get(userId);
+        return userAcked != null ? userAcked.get(chatId) : null;
+    }
+
+    // Only the session that asked gets the batches, not the user's other tabs
+    private void sendToSession(String email, String sessionId, ChatSyncBatch batch) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        MessageHeaders messageHeaders = headers.getMessageHeaders();
+        messagingTemplate.convertAndSendToUser(email, "/queue/chat-sync", batch, messageHeaders);
+    }
+}
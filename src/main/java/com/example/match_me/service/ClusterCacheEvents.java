@@ -0,0 +1,143 @@
+package com.example.match_me.service;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Keeps the per-node caches coherent when several nodes share the STOMP broker relay
+// (chat.broker.mode=relay). A node that changes cached state publishes an invalidation on
+// TOPIC; every node is subscribed to it on the relay's system connection (see ClusterCacheConfig)
+// and hands the invalidations of other nodes to its caches as a local Invalidation event.
+//
+// Invalidations published while the relay is down are lost, so when the relay connection comes
+// back every node drops its caches (local CachesReset event). In simple mode nothing is published.
+@Component
+public class ClusterCacheEvents implements MessageHandler {
+
+    public static final String TOPIC = "/topic/cluster.cache-events";
+
+    public enum Type {
+        // first/second = the two user ids
+        MATCH_PAIR,
+        // first = chat id
+        CHAT_MESSAGES,
+        // first = liker id, second = liked id
+        INTERACTION,
+        // first = user id
+        DISPLAY_NAME
+    }
+
+    // What goes over the broker
+    public record Event(String node, Type type, long first, long second) { }
+
+    // Published locally for each invalidation from another node
+    public record Invalidation(Type type, long first, long second) { }
+
+    // Published locally when invalidations may have been missed
+    public record CachesReset() { }
+
+    private final boolean enabled;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    // Starts out true: anything cached before the first connect may already have missed invalidations
+    private final AtomicBoolean brokerLost = new AtomicBoolean(true);
+
+    private final Counter publishedCounter;
+    private final Counter receivedCounter;
+
+    public ClusterCacheEvents(@Value("${chat.broker.mode:simple}") String brokerMode,
+                              ObjectProvider<SimpMessagingTemplate> messagingTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry) {
+        this.enabled = "relay".equalsIgnoreCase(brokerMode);
+        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.publishedCounter = Counter.builder("cluster.cache-events.published").register(meterRegistry);
+        this.receivedCounter = Counter.builder("cluster.cache-events.received").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Sent once the surrounding transaction has completed, so other nodes never reload the old state
+    public void publish(Type type, long first, long second) {
+        if (!enabled) {
+            return;
+        }
+        Event event = new Event(nodeId, type, first, second);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    private void send(Event event) {
+        try {
+            messagingTemplate.getObject().convertAndSend(TOPIC, event);
+            publishedCounter.increment();
+        } catch (Exception e) {
+            // The relay is down; the other nodes reset their caches once it is back
+            System.err.println("Error publishing cache invalidation " + event.type() + ": " + e.getMessage());
+        }
+    }
+
+    // Messages from the relay's system subscription to TOPIC
+    @Override
+    public void handleMessage(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return;
+        }
+        try {
+            Event event = objectMapper.readValue(payload, Event.class);
+            if (nodeId.equals(event.node())) {
+                return; // already applied locally
+            }
+            receivedCounter.increment();
+            eventPublisher.publishEvent(new Invalidation(event.type(), event.first(), event.second()));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error handling cache invalidation: " + e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onBrokerAvailability(BrokerAvailabilityEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!event.isBrokerAvailable()) {
+            brokerLost.set(true);
+        } else if (brokerLost.compareAndSet(true, false)) {
+            System.out.println("STOMP broker relay connected, dropping cached chat and match state");
+            eventPublisher.publishEvent(new CachesReset());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.match_me.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.match_me.entity.UserProfile;
+import com.example.match_me.repository.UserProfileRepository;
+
+// Small LRU cache of profile display names, so notifications and chat messages
+// can show a name without loading the User/UserProfile entities.
+// UserService.updateProfile evicts the entry when a name changes (on every node in relay mode).
+@Component
+public class DisplayNameCache {
+
+    private final UserProfileRepository userProfileRepository;
+    private final ClusterCacheEvents clusterCacheEvents;
+    private final Map<Long, String> names;
+
+    public DisplayNameCache(UserProfileRepository userProfileRepository,
+                            ClusterCacheEvents clusterCacheEvents,
+                            @Value("${users.display-name-cache-size:10000}") int cacheSize) {
+        this.userProfileRepository = userProfileRepository;
+        this.clusterCacheEvents = clusterCacheEvents;
+        this.names = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public String getDisplayName(Long userId) {
+        String name = names.get(userId);
+        if (name == null) {
+            name = userProfileRepository.findDisplayNameById(userId)
+                .orElse(null);
+            name = name != null ? name : fallbackName(userId);
+            names.put(userId, name);
+        }
+        return name;
+    }
+
+    // Misses are loaded with a single IN query
+    public Map<Long, String> getDisplayNames(Collection<Long> userIds) {
+        Map<Long, String> result = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long userId : userIds) {
+            String name = names.get(userId);
+            if (name != null) {
+                result.put(userId, name);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (UserProfile profile : userProfileRepository.findByIdIn(missing)) {
+                if (profile.getDisplayName() != null) {
+                    result.put(profile.getId(), profile.getDisplayName());
+                }
+            }
+            for (Long userId : missing) {
+                String name = result.computeIfAbsent(userId, DisplayNameCache::fallbackName);
+                names.put(userId, name);
+            }
+        }
+        return result;
+    }
+
+    public void evict(Long userId) {
+        names.remove(userId);
+        clusterCacheEvents.publish(ClusterCacheEvents.Type.DISPLAY_NAME, userId, 0);
+    }
+
+    @EventListener
+    public void onInvalidation(ClusterCacheEvents.Invalidation invalidation) {
+        if (invalidation.type() == ClusterCacheEvents.Type.DISPLAY_NAME) {
+            names.remove(invalidation.first());
+        }
+    }
+
+    @EventListener
+    public void onReset(ClusterCacheEvents.CachesReset reset) {
+        names.clear();
+    }
+
+    private static String fallbackName(Long userId) {
+        return "User " + userId;
+    }
+}
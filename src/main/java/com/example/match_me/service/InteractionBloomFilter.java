@@ -0,0 +1,205 @@
+package com.example.match_me.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Sharded Bloom filter over (liker, liked) pairs from user_likes.
+// A negative answer means the pair has definitely never been stored, so the
+// database lookup can be skipped. A positive answer still has to be confirmed in Postgres.
+// Deleted interactions are never removed from the filter, they just become false positives.
+// In relay mode pairs added on one node are added on the others through ClusterCacheEvents;
+// after a broker outage (when some may have been missed) the filter is reloaded from the table.
+@Component
+public class InteractionBloomFilter {
+
+    private static final int SHARD_COUNT = 64;
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ClusterCacheEvents clusterCacheEvents;
+
+    private final AtomicLongArray[] shards = new AtomicLongArray[SHARD_COUNT];
+    private final long bitsPerShard;
+    private final int hashFunctions;
+
+    // Until the startup load finishes every pair is reported as "maybe present"
+    private volatile boolean ready = false;
+    private final AtomicBoolean loading = new AtomicBoolean(false);
+
+    private final AtomicLong insertions = new AtomicLong();
+    private final AtomicLong positives = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final Counter negativeCounter;
+    private final Counter positiveCounter;
+    private final Counter falsePositiveCounter;
+
+    public InteractionBloomFilter(JdbcTemplate jdbcTemplate,
+                                  ClusterCacheEvents clusterCacheEvents,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${likes.bloom-filter.expected-insertions:1000000}") long expectedInsertions,
+                                  @Value("${likes.bloom-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterCacheEvents = clusterCacheEvents;
+
+        // Standard sizing: m = -n ln(p) / (ln 2)^2, k = m/n ln 2
+        long totalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (totalBits / SHARD_COUNT + 63) / 64);
+        this.bitsPerShard = words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) totalBits / expectedInsertions * Math.log(2)));
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new AtomicLongArray((int) words);
+        }
+
+        this.negativeCounter = Counter.builder("likes.bloom.checks").tag("result", "negative").register(meterRegistry);
+        this.positiveCounter = Counter.builder("likes.bloom.checks").tag("result", "positive").register(meterRegistry);
+        this.falsePositiveCounter = Counter.builder("likes.bloom.false.positives").register(meterRegistry);
+        Gauge.builder("likes.bloom.false.positive.rate", this, InteractionBloomFilter::getObservedFalsePositiveRate)
+            .description("Share of positive answers that the database did not confirm")
+            .register(meterRegistry);
+        Gauge.builder("likes.bloom.expected.false.positive.rate", this, InteractionBloomFilter::getExpectedFalsePositiveRate)
+            .description("Theoretical false positive rate for the current number of insertions")
+            .register(meterRegistry);
+        Gauge.builder("likes.bloom.insertions", insertions, AtomicLong::get).register(meterRegistry);
+    }
+
+    // Load every existing pair once the schema is in place (keyset paging keeps memory flat)
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadExistingInteractions() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long lastId = 0;
+            while (true) {
+                long[] pageLastId = { -1 };
+                jdbcTemplate.query(
+                    "SELECT id, liker_id, liked_id FROM user_likes WHERE id > ? ORDER BY id LIMIT ?",
+                    rs -> {
+                        addBits(rs.getLong("liker_id"), rs.getLong("liked_id"));
+                        pageLastId[0] = rs.getLong("id");
+                    },
+                    lastId, LOAD_PAGE_SIZE);
+                if (pageLastId[0] < 0) {
+                    break;
+                }
+                lastId = pageLastId[0];
+            }
+            ready = true;
+            System.out.println("Interaction Bloom filter loaded with " + insertions.get() + " pairs");
+        } catch (RuntimeException e) {
+            // Stay in "not ready" mode, every check then falls through to the database
+            System.err.println("ERROR loading interaction Bloom filter: " + e.getMessage());
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    public void add(long likerId, long likedId) {
+        addBits(likerId, likedId);
+        clusterCacheEvents.publish(ClusterCacheEvents.Type.INTERACTION, likerId, likedId);
+    }
+
+    @EventListener
+    public void onInvalidation(ClusterCacheEvents.Invalidation invalidation) {
+        if (invalidation.type() == ClusterCacheEvents.Type.INTERACTION) {
+            addBits(invalidation.first(), invalidation.second());
+        }
+    }
+
+    // Bits are only ever set, so reloading over the current ones is safe; checks go to the
+    // database until it is done
+    @EventListener
+    public void onReset(ClusterCacheEvents.CachesReset reset) {
+        if (!ready) {
+            return; // the startup load is still running or failed, it covers the table anyway
+        }
+        ready = false;
+        Thread reload = new Thread(this::loadExistingInteractions, "bloom-filter-reload");
+        reload.setDaemon(true);
+        reload.start();
+    }
+
+    private void addBits(long likerId, long likedId) {
+        AtomicLongArray shard = shardFor(likerId);
+        long hash = hash(likerId, likedId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitsPerShard);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            shard.getAndAccumulate(word, mask, (current, m) -> current | m);
+        }
+        insertions.incrementAndGet();
+    }
+
+    // false = pair was definitely never stored, true = ask the database
+    public boolean mightContain(long likerId, long likedId) {
+        if (!ready) {
+            return true;
+        }
+        AtomicLongArray shard = shardFor(likerId);
+        long hash = hash(likerId, likedId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitsPerShard);
+            if ((shard.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                negativeCounter.increment();
+                return false;
+            }
+        }
+        positives.incrementAndGet();
+        positiveCounter.increment();
+        return true;
+    }
+
+    // Called when a positive answer was not confirmed by the database
+    public void recordFalsePositive() {
+        if (!ready) {
+            return;
+        }
+        falsePositives.incrementAndGet();
+        falsePositiveCounter.increment();
+    }
+
+    public double getObservedFalsePositiveRate() {
+        long total = positives.get();
+        return total == 0 ? 0.0 : (double) falsePositives.get() / total;
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        double perShard = (double) insertions.get() / SHARD_COUNT;
+        return Math.pow(1 - Math.exp(-hashFunctions * perShard / bitsPerShard), hashFunctions);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private AtomicLongArray shardFor(long likerId) {
+        return shards[(int) Math.floorMod(mix(likerId), (long) SHARD_COUNT)];
+    }
+
+    private static long hash(long likerId, long likedId) {
+        return mix(likerId * 0x9E3779B97F4A7C15L + likedId);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
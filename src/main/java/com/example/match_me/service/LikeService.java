@@ -1,28 +1,38 @@
 package com.example.match_me.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import com.example.match_me.DTO.EnrichedMatchDTO;
 import com.example.match_me.DTO.InterestDTO;
 import com.example.match_me.DTO.LikeRequest;
 import com.example.match_me.DTO.LikeResponse;
+import com.example.match_me.DTO.LikeStatsDTO;
 import com.example.match_me.DTO.UserBioDTO;
 import com.example.match_me.DTO.UserLikeDTO;
+import com.example.match_me.DTO.UserLikePageDTO;
 import com.example.match_me.DTO.UserProfileDTO;
+import com.example.match_me.entity.MatchPair;
 import com.example.match_me.entity.User;
 import com.example.match_me.entity.UserBio;
 import com.example.match_me.entity.UserLike;
 import com.example.match_me.entity.UserProfile;
+import com.example.match_me.repository.UserBioRepository;
 import com.example.match_me.repository.UserLikeRepository;
-import com.example.match_me.repository.UserRepository;
+import com.example.match_me.repository.UserProfileRepository;
 
 @Service
 public class LikeService {
@@ -31,95 +41,173 @@ public class LikeService {
     private UserLikeRepository userLikeRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private MatchNotificationDispatcher matchNotificationDispatcher;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private InteractionBloomFilter interactionBloomFilter;
 
+    @Autowired
+    private MatchService matchService;
+
+    @Autowired
+    private LikeStatsService likeStatsService;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private UserBioRepository userBioRepository;
+
+    @Autowired
+    private SwipeBatchWriter swipeBatchWriter;
+
+    @Autowired
+    private DisplayNameCache displayNameCache;
+
+    @Autowired
+    private SwipeEventLog swipeEventLog;
+
+    // Id-only write path: users are referenced by id and the user_likes foreign keys
+    // reject unknown ids, so a plain swipe only reads and writes user_likes.
     @Transactional
     public LikeResponse likeUser(Long likerId, LikeRequest likeRequest) {
         try {
-            // Get the users
-            Optional<User> likerOpt = userRepository.findById(likerId);
-            Optional<User> likedOpt = userRepository.findById(likeRequest.getLikedUserId());
-
-            if (likerOpt.isEmpty() || likedOpt.isEmpty()) {
+            Long likedId = likeRequest.getLikedUserId();
+            if (likerId == null || likedId == null) {
                 return new LikeResponse(false, "User not found");
             }
 
-            User liker = likerOpt.get();
-            User liked = likedOpt.get();
-
             // Check if user is trying to interact with themselves
-            if (likerId.equals(likeRequest.getLikedUserId())) {
+            if (likerId.equals(likedId)) {
                 return new LikeResponse(false, "Cannot interact with yourself");
             }
 
-            // Check if interaction already exists
-            Optional<UserLike> existingInteraction = userLikeRepository.findByLikerAndLiked(liker, liked);
+            // Swipes on the same pair are serialized so a mutual like is never missed
+            matchService.lockPair(likerId, likedId);
+
+            // Check if interaction already exists (the Bloom filter rules out most first-time swipes)
+            Optional<UserLike> existingInteraction = Optional.empty();
+            if (interactionBloomFilter.mightContain(likerId, likedId)) {
+                existingInteraction = userLikeRepository.findByLikerIdAndLikedId(likerId, likedId);
+                if (existingInteraction.isEmpty()) {
+                    interactionBloomFilter.recordFalsePositive();
+                }
+            }
+            LikeStatsService.Deltas statsDeltas = new LikeStatsService.Deltas();
+            boolean inserted = false;
+            if (existingInteraction.isEmpty()) {
+                // Added before the insert so concurrent checks never see a false negative
+                interactionBloomFilter.add(likerId, likedId);
+                try {
+                    // ON CONFLICT DO NOTHING, so only the user foreign keys can fail here
+                    inserted = userLikeRepository.insertIfAbsent(likerId, likedId, likeRequest.isLike()) == 1;
+                } catch (DataIntegrityViolationException e) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return new LikeResponse(false, "User not found");
+                }
+                if (inserted) {
+                    statsDeltas.interaction(likerId, likedId, null, likeRequest.isLike());
+                } else {
+                    // The filter missed a row (e.g. written on another node before its add arrived)
+                    existingInteraction = userLikeRepository.findByLikerIdAndLikedId(likerId, likedId);
+                }
+            }
             if (existingInteraction.isPresent()) {
                 UserLike interaction = existingInteraction.get();
+                boolean wasLike = interaction.isLike();
+                if (wasLike && !likeRequest.isLike()) {
+                    // Disliking a previous like ends any match between the two users
+                    if (matchService.removeMatch(likerId, likedId)) {
+                        statsDeltas.match(likerId, likedId, -1);
+                    }
+                }
+                statsDeltas.interaction(likerId, likedId, wasLike, likeRequest.isLike());
                 interaction.setLike(likeRequest.isLike());
                 userLikeRepository.save(interaction);
-            } else {
-                UserLike userLike = new UserLike(liker, liked, likeRequest.isLike());
-                userLikeRepository.save(userLike);
+            } else if (!inserted) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return new LikeResponse(false, "Error processing interaction: interaction changed concurrently");
             }
 
             // Check if this creates a match (only if it's a like)
             boolean isMatch = false;
             if (likeRequest.isLike()) {
-                Optional<UserLike> reverseInteraction = userLikeRepository.findByLikerAndLiked(liked, liker);
+                Optional<UserLike> reverseInteraction = userLikeRepository.findByLikerIdAndLikedId(likedId, likerId);
                 if (reverseInteraction.isPresent()) {
                     isMatch = reverseInteraction.get().isLike();
                     
-                    // If it's a match, send WebSocket notifications to both users
-                    if (isMatch) {
-                        // Get display names for both users
-                        String likerDisplayName = liker.getProfile() != null ? liker.getProfile().getDisplayName() : "User " + liker.getId();
-                        String likedDisplayName = liked.getProfile() != null ? liked.getProfile().getDisplayName() : "User " + liked.getId();
-                        
-                        // Send notification to liker
-                        messagingTemplate.convertAndSend(
-                            "/topic/matches/" + liker.getId(),
-                            new MatchNotification(likerDisplayName, liked.getId())
-                        );
-                        
-                        // Send notification to liked user
-                        messagingTemplate.convertAndSend(
-                            "/topic/matches/" + liked.getId(),
-                            new MatchNotification(likedDisplayName, liker.getId())
-                        );
+                    // If it's a new match, store it and queue notifications for both users (sent after commit).
+                    // Re-liking an existing match does not notify again.
+                    if (isMatch && matchService.recordMatch(likerId, likedId)) {
+                        statsDeltas.match(likerId, likedId, 1);
+
+                        // Display names are only looked up once there is a match
+                        String likerDisplayName = displayNameCache.getDisplayName(likerId);
+                        String likedDisplayName = displayNameCache.getDisplayName(likedId);
+
+                        matchNotificationDispatcher.enqueue(List.of(
+                            new MatchNotificationDispatcher.Notification(likerId, likedId, likerDisplayName),
+                            new MatchNotificationDispatcher.Notification(likedId, likerId, likedDisplayName)
+                        ));
                     }
                 }
             }
 
+            likeStatsService.apply(statsDeltas);
+            swipeEventLog.record(likerId, likedId,
+                likeRequest.isLike() ? SwipeEventLog.EventType.LIKE : SwipeEventLog.EventType.DISLIKE);
+
             String message = isMatch ? "It's a match!" : 
                            (likeRequest.isLike() ? "Like sent successfully" : "Dislike recorded");
 
-            return new LikeResponse(true, message, isMatch, likeRequest.getLikedUserId());
+            return new LikeResponse(true, message, isMatch, likedId);
 
         } catch (Exception e) {
             System.err.println("ERROR in LikeService.likeUser(): " + e.getMessage());
             e.printStackTrace();
+            // Never commit half a swipe (or its queued notifications)
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return new LikeResponse(false, "Error processing interaction: " + e.getMessage());
         }
     }
 
+    // Bulk variant of likeUser for pre-loaded decks and offline-queued swipes.
+    // All swipes are validated, upserted and match-checked as one batch, one response per request.
+    public List<LikeResponse> likeUsers(Long likerId, List<LikeRequest> likeRequests) {
+        List<SwipeBatchWriter.Swipe> swipes = likeRequests.stream()
+            .map(request -> new SwipeBatchWriter.Swipe(likerId, request.getLikedUserId(), request.isLike()))
+            .collect(Collectors.toList());
+        try {
+            return swipeBatchWriter.applySwipes(swipes);
+        } catch (Exception e) {
+            System.err.println("ERROR in LikeService.likeUsers(): " + e.getMessage());
+            e.printStackTrace();
+            LikeResponse failure = new LikeResponse(false, "Error processing interaction: " + e.getMessage());
+            return likeRequests.stream().map(request -> failure).collect(Collectors.toList());
+        }
+    }
+
     @Transactional
     public boolean removeInteraction(Long likerId, Long likedUserId) {
         try {
-            Optional<User> likerOpt = userRepository.findById(likerId);
-            Optional<User> likedOpt = userRepository.findById(likedUserId);
-
-            if (likerOpt.isEmpty() || likedOpt.isEmpty()) {
-                return false;
-            }
+            // Locked before the read, like likeUser, so a concurrent swipe cannot change the row in between
+            matchService.lockPair(likerId, likedUserId);
 
-            Optional<UserLike> existingInteraction = userLikeRepository.findByLikerAndLiked(likerOpt.get(), likedOpt.get());
+            // A missing user simply has no interaction row, no need to load either user
+            Optional<UserLike> existingInteraction = userLikeRepository.findByLikerIdAndLikedId(likerId, likedUserId);
             
             if (existingInteraction.isPresent()) {
+                boolean wasLike = existingInteraction.get().isLike();
+                LikeStatsService.Deltas statsDeltas = new LikeStatsService.Deltas()
+                    .interaction(likerId, likedUserId, wasLike, null);
+                if (wasLike) {
+                    if (matchService.removeMatch(likerId, likedUserId)) {
+                        statsDeltas.match(likerId, likedUserId, -1);
+                    }
+                }
                 userLikeRepository.delete(existingInteraction.get());
+                likeStatsService.apply(statsDeltas);
+                swipeEventLog.record(likerId, likedUserId, SwipeEventLog.EventType.REMOVE);
                 return true;
             }
 
@@ -127,6 +215,8 @@ public class LikeService {
         } catch (Exception e) {
             System.err.println("ERROR in LikeService.removeInteraction(): " + e.getMessage());
             e.printStackTrace();
+            // Never commit half a removal (or its queued notifications)
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
@@ -159,106 +249,148 @@ public class LikeService {
             .collect(Collectors.toList());
     }
 
+    // Keyset-paginated variants of the lists above, newest first.
+    // "after" is the nextCursor of the previous page (null for the first page).
+    public UserLikePageDTO getLikesGivenPage(Long userId, Long after, int limit) {
+        return toPage(userLikeRepository.findPageByLikerIdAndLike(userId, true, cursor(after), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    public UserLikePageDTO getDislikesGivenPage(Long userId, Long after, int limit) {
+        return toPage(userLikeRepository.findPageByLikerIdAndLike(userId, false, cursor(after), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    public UserLikePageDTO getAllInteractionsPage(Long userId, Long after, int limit) {
+        return toPage(userLikeRepository.findPageByLikerId(userId, cursor(after), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    public UserLikePageDTO getLikesReceivedPage(Long userId, Long after, int limit) {
+        return toPage(userLikeRepository.findPageByLikedIdAndLike(userId, true, cursor(after), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    private static Long cursor(Long after) {
+        return after != null ? after : Long.MAX_VALUE;
+    }
+
+    // One extra row is fetched to know whether another page exists
+    private static UserLikePageDTO toPage(List<UserLikeDTO> rows, int limit) {
+        boolean hasMore = rows.size() > limit;
+        List<UserLikeDTO> content = hasMore ? rows.subList(0, limit) : rows;
+        Long nextCursor = hasMore ? content.get(content.size() - 1).getId() : null;
+        return new UserLikePageDTO(new ArrayList<>(content), nextCursor, hasMore);
+    }
+
+    @Transactional(readOnly = true)
     public List<UserLikeDTO> getMatchesForUser(Long userId) {
-        List<UserLike> matches = userLikeRepository.findMutualLikesByUserId(userId);
+        List<MatchPair> matches = matchService.getMatches(userId);
+        Set<Long> partnerIds = matches.stream()
+            .map(match -> match.getPartnerId(userId))
+            .collect(Collectors.toSet());
+        Map<Long, UserProfile> profiles = loadProfiles(userId, partnerIds);
         return matches.stream()
-            .map(this::convertToDTO)
+            .map(match -> convertMatchToDTO(match, userId, profiles))
             .collect(Collectors.toList());
     }
 
     public List<Long> getConnectionIds(Long userId) {
-        List<UserLike> matches = userLikeRepository.findMutualLikesByUserId(userId);
-        return matches.stream()
-            .map(userLike -> userLike.getLiked().getId())
-            .collect(Collectors.toList());
+        return matchService.getPartnerIds(userId);
     }
 
     public boolean hasUserInteracted(Long likerId, Long likedUserId) {
-        return userLikeRepository.existsByLikerIdAndLikedId(likerId, likedUserId);
+        if (!interactionBloomFilter.mightContain(likerId, likedUserId)) {
+            return false;
+        }
+        boolean exists = userLikeRepository.existsByLikerIdAndLikedId(likerId, likedUserId);
+        if (!exists) {
+            interactionBloomFilter.recordFalsePositive();
+        }
+        return exists;
+    }
+
+    // Counters come from the denormalized user_like_stats row (cached), not COUNT(*) over user_likes
+    public LikeStatsDTO getLikeStats(Long userId) {
+        return likeStatsService.getStats(userId);
     }
 
     public long getLikeCountGiven(Long userId) {
-        return userLikeRepository.countByLikerIdAndLikeEquals(userId, true);
+        return likeStatsService.getStats(userId).getLikesGiven();
     }
 
     public long getDislikeCountGiven(Long userId) {
-        return userLikeRepository.countByLikerIdAndLikeEquals(userId, false);
+        return likeStatsService.getStats(userId).getDislikesGiven();
     }
 
     public long getLikeCountReceived(Long userId) {
-        return userLikeRepository.countByLikedIdAndLikeEquals(userId, true);
+        return likeStatsService.getStats(userId).getLikesReceived();
     }
 
+    // Hydrates every match with a fixed number of queries, however many matches there are:
+    // matches, profiles, bios + interests, bios + priority traits
+    @Transactional(readOnly = true)
     public List<EnrichedMatchDTO> getEnrichedMatchesForUser(Long userId) {
-        List<UserLikeDTO> matches = getMatchesForUser(userId);
-        
+        List<MatchPair> matches = matchService.getMatches(userId);
+        if (matches.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> partnerIds = matches.stream()
+            .map(match -> match.getPartnerId(userId))
+            .collect(Collectors.toSet());
+        Map<Long, UserProfile> profiles = loadProfiles(userId, partnerIds);
+
+        Map<Long, UserBio> bios = new HashMap<>();
+        for (UserBio bio : userBioRepository.findWithInterestsByIdIn(partnerIds)) {
+            bios.put(bio.getId(), bio);
+        }
+        // Initializes priorityTraits on the same (already loaded) bio instances
+        userBioRepository.findWithPriorityTraitsByIdIn(partnerIds);
+
         return matches.stream()
             .map(match -> {
-                EnrichedMatchDTO enriched = new EnrichedMatchDTO(match);
-                
-                try {
-                    // Get user entity first to avoid multiple repository calls
-                    Optional<User> userOpt = userRepository.findById(match.getLikedId());
-                    if (userOpt.isPresent()) {
-                        User user = userOpt.get();
-                        
-                        // Convert profile directly from entity
-                        UserProfile profile = user.getProfile();
-                        if (profile != null) {
-                            UserProfileDTO profileDTO = new UserProfileDTO();
-                            profileDTO.setId(profile.getId());
-                            profileDTO.setDisplayName(profile.getDisplayName());
-                            profileDTO.setAboutMe(profile.getAboutMe());
-                            profileDTO.setCounty(profile.getCounty());
-                            profileDTO.setLastSeen(profile.getLastSeen());
-                            profileDTO.setGender(profile.getGender());
-                            profileDTO.setAge(profile.getAge());
-                            enriched.setUserProfile(profileDTO);
-                        }
-                        
-                        // Convert bio directly from entity
-                        UserBio bio = user.getBio();
-                        if (bio != null) {
-                            UserBioDTO bioDTO = new UserBioDTO();
-                            bioDTO.setId(bio.getId());
-                            
-                            // Convert interests to DTOs
-                            if (bio.getInterests() != null) {
-                                Set<InterestDTO> interestDTOs = bio.getInterests().stream()
-                                    .map(InterestDTO::new)
-                                    .collect(Collectors.toSet());
-                                bioDTO.setInterests(interestDTOs);
-                            }
-                            
-                            bioDTO.setFavouriteCuisine(bio.getFavouriteCuisine());
-                            bioDTO.setFavouriteMusicGenre(bio.getFavouriteMusicGenre());
-                            bioDTO.setPetPreference(bio.getPetPreference());
-                            bioDTO.setLookingFor(bio.getLookingFor());
-                            bioDTO.setPriorityTraits(bio.getPriorityTraits());
-                            enriched.setUserBio(bioDTO);
-                        }
+                EnrichedMatchDTO enriched = new EnrichedMatchDTO(convertMatchToDTO(match, userId, profiles));
+                Long partnerId = match.getPartnerId(userId);
+
+                UserProfile profile = profiles.get(partnerId);
+                if (profile != null) {
+                    UserProfileDTO profileDTO = new UserProfileDTO();
+                    profileDTO.setId(profile.getId());
+                    profileDTO.setDisplayName(profile.getDisplayName());
+                    profileDTO.setAboutMe(profile.getAboutMe());
+                    profileDTO.setCounty(profile.getCounty());
+                    profileDTO.setLastSeen(profile.getLastSeen());
+                    profileDTO.setGender(profile.getGender());
+                    profileDTO.setAge(profile.getAge());
+                    enriched.setUserProfile(profileDTO);
+                }
+
+                UserBio bio = bios.get(partnerId);
+                if (bio != null) {
+                    UserBioDTO bioDTO = new UserBioDTO();
+                    bioDTO.setId(bio.getId());
+
+                    // Convert interests to DTOs
+                    if (bio.getInterests() != null) {
+                        Set<InterestDTO> interestDTOs = bio.getInterests().stream()
+                            .map(InterestDTO::new)
+                            .collect(Collectors.toSet());
+                        bioDTO.setInterests(interestDTOs);
                     }
-                } catch (RuntimeException e) {
-                    // If user details can't be fetched, still return the basic match info
-                    System.err.println("Error fetching user details for user " + match.getLikedId() + ": " + e.getMessage());
+
+                    bioDTO.setFavouriteCuisine(bio.getFavouriteCuisine());
+                    bioDTO.setFavouriteMusicGenre(bio.getFavouriteMusicGenre());
+                    bioDTO.setPetPreference(bio.getPetPreference());
+                    bioDTO.setLookingFor(bio.getLookingFor());
+                    bioDTO.setPriorityTraits(bio.getPriorityTraits());
+                    enriched.setUserBio(bioDTO);
                 }
-                
+
                 return enriched;
             })
             .collect(Collectors.toList());
     }
 
     public boolean areUsersMatched(Long userId1, Long userId2) {
-        // Check if user1 likes user2 AND user2 likes user1
-        boolean user1LikesUser2 = userLikeRepository.findByLikerIdAndLikedId(userId1, userId2)
-            .map(UserLike::isLike)
-            .orElse(false);
-            
-        boolean user2LikesUser1 = userLikeRepository.findByLikerIdAndLikedId(userId2, userId1)
-            .map(UserLike::isLike)
-            .orElse(false);
-            
-        return user1LikesUser2 && user2LikesUser1;
+        // Single probe on the ordered pair in the matches table
+        return matchService.areMatched(userId1, userId2);
     }
 
     private UserLikeDTO convertToDTO(UserLike userLike) {
@@ -278,6 +410,35 @@ public class LikeService {
         
         return dto;
     }
+
+    // One IN query for the display names of the user and all of their partners
+    private Map<Long, UserProfile> loadProfiles(Long userId, Set<Long> partnerIds) {
+        Set<Long> ids = new HashSet<>(partnerIds);
+        ids.add(userId);
+        Map<Long, UserProfile> profiles = new HashMap<>();
+        for (UserProfile profile : userProfileRepository.findByIdIn(ids)) {
+            profiles.put(profile.getId(), profile);
+        }
+        return profiles;
+    }
+
+    // Matches are returned from the point of view of the requesting user (liker = userId).
+    // Only the user ids are read from the match, so the lazy user proxies are never initialized.
+    private UserLikeDTO convertMatchToDTO(MatchPair match, Long userId, Map<Long, UserProfile> profiles) {
+        Long partnerId = match.getPartnerId(userId);
+        UserProfile userProfile = profiles.get(userId);
+        UserProfile partnerProfile = profiles.get(partnerId);
+
+        UserLikeDTO dto = new UserLikeDTO();
+        dto.setId(match.getId());
+        dto.setLikerId(userId);
+        dto.setLikedId(partnerId);
+        dto.setLikerDisplayName(userProfile != null ? userProfile.getDisplayName() : "User " + userId);
+        dto.setLikedDisplayName(partnerProfile != null ? partnerProfile.getDisplayName() : "User " + partnerId);
+        dto.setLike(true);
+
+        return dto;
+    }
 }
 
 class MatchNotification {
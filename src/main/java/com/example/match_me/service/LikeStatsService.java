@@ -0,0 +1,324 @@
+package com.example.match_me.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.match_me.DTO.LikeStatsDTO;
+import com.example.match_me.entity.UserLikeStats;
+import com.example.match_me.repository.UserLikeStatsRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Per-user like counters (user_like_stats), updated in the same transaction as the swipe
+// and read through a small in-memory cache. A background job recomputes the counters
+// from user_likes/matches and repairs and reports any drift.
+@Service
+public class LikeStatsService {
+
+    // Small chunks: the counts run without locks, but each chunk is still one statement
+    private static final int RECONCILE_CHUNK_SIZE = 100;
+
+    // The real counters next to the stored row, read in one statement so both come from the same
+    // snapshot (a swipe commits its user_likes row and its counter delta together). Takes no locks.
+    private static final String SNAPSHOT_SQL =
+        "SELECT u.id AS user_id," +
+        "  (SELECT COUNT(*) FROM user_likes l WHERE l.liker_id = u.id AND l.is_like = true) AS likes_given," +
+        "  (SELECT COUNT(*) FROM user_likes l WHERE l.liker_id = u.id AND l.is_like = false) AS dislikes_given," +
+        "  (SELECT COUNT(*) FROM user_likes l WHERE l.liked_id = u.id AND l.is_like = true) AS likes_received," +
+        "  (SELECT COUNT(*) FROM matches m WHERE m.user_low_id = u.id OR m.user_high_id = u.id) AS matches," +
+        "  s.user_id IS NOT NULL AS has_row, s.likes_given AS stored_likes_given, s.dislikes_given AS stored_dislikes_given," +
+        "  s.likes_received AS stored_likes_received, s.matches AS stored_matches " +
+        "FROM users u LEFT JOIN user_like_stats s ON s.user_id = u.id " +
+        "WHERE u.id > :afterId AND u.id <= :lastId ORDER BY u.id";
+
+    // Compare-and-set: only a row still holding the snapshot's values is overwritten. A row that a
+    // swipe (or another node's reconciliation) changed since the snapshot is left for the next run.
+    private static final String REPAIR_SQL =
+        "UPDATE user_like_stats SET likes_given = :likesGiven, dislikes_given = :dislikesGiven, " +
+        "likes_received = :likesReceived, matches = :matches " +
+        "WHERE user_id = :userId AND likes_given = :storedLikesGiven AND dislikes_given = :storedDislikesGiven " +
+        "AND likes_received = :storedLikesReceived AND matches = :storedMatches";
+
+    private static final String CREATE_SQL =
+        "INSERT INTO user_like_stats (user_id, likes_given, dislikes_given, likes_received, matches) " +
+        "VALUES (:userId, :likesGiven, :dislikesGiven, :likesReceived, :matches) ON CONFLICT (user_id) DO NOTHING";
+
+    private static final String[] COLUMNS = { "likes_given", "dislikes_given", "likes_received", "matches" };
+    private static final String[] PARAMS = { "likesGiven", "dislikesGiven", "likesReceived", "matches" };
+    private static final String[] STORED_PARAMS =
+        { "storedLikesGiven", "storedDislikesGiven", "storedLikesReceived", "storedMatches" };
+
+    @Autowired
+    private UserLikeStatsRepository userLikeStatsRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final Map<Long, CachedStats> cache;
+    private final long cacheTtlMs;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+
+    private final Counter driftCounter;
+    private final AtomicLong lastReconcileDrift = new AtomicLong();
+
+    private record CachedStats(LikeStatsDTO stats, long loadedAt) { }
+
+    // stored is null when the user has no counter row yet
+    private record Snapshot(long userId, long[] actual, long[] stored) { }
+
+    public LikeStatsService(MeterRegistry meterRegistry,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+                            @Value("${likes.stats.cache-size:10000}") int cacheSize,
+                            @Value("${likes.stats.cache-ttl-ms:60000}") long cacheTtlMs) {
+        this.cacheTtlMs = cacheTtlMs;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskScheduler = taskScheduler;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedStats> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.driftCounter = Counter.builder("likes.stats.drift")
+            .description("Counter rows repaired by the reconciliation job")
+            .register(meterRegistry);
+        Gauge.builder("likes.stats.last.reconcile.drift", lastReconcileDrift, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("likes.stats.cache.size", cache, Map::size).register(meterRegistry);
+    }
+
+    // Accumulates counter changes for one swipe transaction (or one batch of swipes)
+    public static class Deltas {
+        // userId -> {likesGiven, dislikesGiven, likesReceived, matches}, sorted so the upsert
+        // locks rows in user id order like the reconciliation does
+        private final Map<Long, long[]> byUser = new TreeMap<>();
+
+        // previous/current: TRUE = like, FALSE = dislike, null = no interaction
+        public Deltas interaction(Long likerId, Long likedId, Boolean previous, Boolean current) {
+            long likes = (Boolean.TRUE.equals(current) ? 1 : 0) - (Boolean.TRUE.equals(previous) ? 1 : 0);
+            long dislikes = (Boolean.FALSE.equals(current) ? 1 : 0) - (Boolean.FALSE.equals(previous) ? 1 : 0);
+            add(likerId, 0, likes);
+            add(likerId, 1, dislikes);
+            add(likedId, 2, likes);
+            return this;
+        }
+
+        public Deltas match(Long userId1, Long userId2, int delta) {
+            add(userId1, 3, delta);
+            add(userId2, 3, delta);
+            return this;
+        }
+
+        private void add(Long userId, int column, long delta) {
+            if (delta != 0) {
+                byUser.computeIfAbsent(userId, id -> new long[4])[column] += delta;
+            }
+        }
+
+        public boolean isEmpty() {
+            return byUser.isEmpty();
+        }
+    }
+
+    // Must run inside the swipe transaction so counters commit or roll back with it
+    public void apply(Deltas deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO user_like_stats (user_id, likes_given, dislikes_given, likes_received, matches) VALUES ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        int i = 0;
+        for (Map.Entry<Long, long[]> entry : deltas.byUser.entrySet()) {
+            long[] d = entry.getValue();
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:u").append(i).append(", :lg").append(i).append(", :dg").append(i)
+               .append(", :lr").append(i).append(", :m").append(i).append(")");
+            params.addValue("u" + i, entry.getKey());
+            params.addValue("lg" + i, d[0]);
+            params.addValue("dg" + i, d[1]);
+            params.addValue("lr" + i, d[2]);
+            params.addValue("m" + i, d[3]);
+            i++;
+        }
+        sql.append(" ON CONFLICT (user_id) DO UPDATE SET " +
+            "likes_given = user_like_stats.likes_given + EXCLUDED.likes_given, " +
+            "dislikes_given = user_like_stats.dislikes_given + EXCLUDED.dislikes_given, " +
+            "likes_received = user_like_stats.likes_received + EXCLUDED.likes_received, " +
+            "matches = user_like_stats.matches + EXCLUDED.matches");
+        jdbcTemplate.update(sql.toString(), params);
+        evictAfterCommit(deltas.byUser.keySet());
+    }
+
+    public LikeStatsDTO getStats(Long userId) {
+        CachedStats cached = cache.get(userId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < cacheTtlMs) {
+            return cached.stats();
+        }
+        LikeStatsDTO stats = userLikeStatsRepository.findById(userId)
+            .map(this::toDTO)
+            .orElseGet(() -> reconcileUser(userId));
+        cache.put(userId, new CachedStats(stats, System.currentTimeMillis()));
+        return stats;
+    }
+
+    // Fill the table on the first start with it, afterwards the scheduled job keeps it honest.
+    // Runs on the scheduler so startup does not wait for a full pass over the users.
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillStats() {
+        taskScheduler.schedule(() -> {
+            try {
+                if (userLikeStatsRepository.count() == 0) {
+                    reconcileAll();
+                }
+            } catch (RuntimeException e) {
+                System.err.println("ERROR backfilling like stats: " + e.getMessage());
+            }
+        }, Instant.now());
+    }
+
+    @Scheduled(initialDelayString = "${likes.stats.reconcile-interval-ms:3600000}",
+               fixedDelayString = "${likes.stats.reconcile-interval-ms:3600000}")
+    public void reconcileAll() {
+        long drift = 0;
+        long afterId = 0;
+        try {
+            while (true) {
+                Long lastId = jdbcTemplate.queryForObject(
+                    "SELECT MAX(id) FROM (SELECT id FROM users WHERE id > :afterId ORDER BY id LIMIT :limit) chunk",
+                    new MapSqlParameterSource("afterId", afterId).addValue("limit", RECONCILE_CHUNK_SIZE),
+                    Long.class);
+                if (lastId == null) {
+                    break;
+                }
+                List<Long> repaired = reconcileChunk(afterId, lastId);
+                if (!repaired.isEmpty()) {
+                    drift += repaired.size();
+                    repaired.forEach(cache::remove);
+                }
+                afterId = lastId;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("ERROR reconciling like stats: " + e.getMessage());
+        }
+        lastReconcileDrift.set(drift);
+        if (drift > 0) {
+            driftCounter.increment(drift);
+            System.out.println("Like stats reconciliation repaired " + drift + " user counter rows");
+        }
+    }
+
+    // Counts first without locks, then repairs only the rows that differ with a short compare-and-set
+    // transaction, so swipes never wait for the counting. Returns the repaired user ids.
+    List<Long> reconcileChunk(long afterId, long lastId) {
+        List<Snapshot> drifted = new ArrayList<>();
+        jdbcTemplate.query(SNAPSHOT_SQL,
+            new MapSqlParameterSource("afterId", afterId).addValue("lastId", lastId),
+            rs -> {
+                long[] actual = new long[COLUMNS.length];
+                long[] stored = rs.getBoolean("has_row") ? new long[COLUMNS.length] : null;
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    actual[i] = rs.getLong(COLUMNS[i]);
+                    if (stored != null) {
+                        stored[i] = rs.getLong("stored_" + COLUMNS[i]);
+                    }
+                }
+                if (stored == null || !Arrays.equals(actual, stored)) {
+                    drifted.add(new Snapshot(rs.getLong("user_id"), actual, stored));
+                }
+            });
+        if (drifted.isEmpty()) {
+            return List.of();
+        }
+
+        // In user id order, the order apply() locks in
+        List<SqlParameterSource> repairs = new ArrayList<>();
+        List<SqlParameterSource> creates = new ArrayList<>();
+        List<Long> repairIds = new ArrayList<>();
+        List<Long> createIds = new ArrayList<>();
+        for (Snapshot snapshot : drifted) {
+            MapSqlParameterSource params = new MapSqlParameterSource("userId", snapshot.userId());
+            for (int i = 0; i < PARAMS.length; i++) {
+                params.addValue(PARAMS[i], snapshot.actual()[i]);
+            }
+            if (snapshot.stored() == null) {
+                creates.add(params);
+                createIds.add(snapshot.userId());
+            } else {
+                for (int i = 0; i < STORED_PARAMS.length; i++) {
+                    params.addValue(STORED_PARAMS[i], snapshot.stored()[i]);
+                }
+                repairs.add(params);
+                repairIds.add(snapshot.userId());
+            }
+        }
+        return transactionTemplate.execute(status -> {
+            List<Long> repaired = new ArrayList<>();
+            collectUpdated(jdbcTemplate.batchUpdate(REPAIR_SQL, repairs.toArray(new SqlParameterSource[0])), repairIds, repaired);
+            collectUpdated(jdbcTemplate.batchUpdate(CREATE_SQL, creates.toArray(new SqlParameterSource[0])), createIds, repaired);
+            return repaired;
+        });
+    }
+
+    private static void collectUpdated(int[] counts, List<Long> ids, List<Long> updated) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                updated.add(ids.get(i));
+            }
+        }
+    }
+
+    private LikeStatsDTO reconcileUser(Long userId) {
+        reconcileChunk(userId - 1, userId);
+        return userLikeStatsRepository.findById(userId)
+            .map(this::toDTO)
+            .orElseGet(() -> new LikeStatsDTO(0, 0, 0, 0));
+    }
+
+    // Evict now and again after commit, so a read racing the transaction cannot cache old values
+    private void evictAfterCommit(Set<Long> userIds) {
+        userIds.forEach(cache::remove);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Long> ids = List.copyOf(userIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(cache::remove);
+                }
+            });
+        }
+    }
+
+    private LikeStatsDTO toDTO(UserLikeStats stats) {
+        return new LikeStatsDTO(stats.getLikesGiven(), stats.getDislikesGiven(), stats.getLikesReceived(), stats.getMatches());
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.match_me.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+// Transactional outbox for match notifications.
+// enqueue() writes rows in the caller's transaction, so a rolled back swipe never notifies anyone
+// and the broker is never called while the swipe transaction is open. After commit the
+// "match-notifier" thread is woken and drains the table in batches (FOR UPDATE SKIP LOCKED, so
+// several instances can share it). Failed sends are retried with exponential backoff.
+@Component
+public class MatchNotificationDispatcher {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private volatile boolean running = false;
+    private Thread dispatcherThread;
+
+    private final Counter enqueuedCounter;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter droppedCounter;
+    private final Timer deliveryLag;
+
+    public record Notification(Long recipientId, Long matchedUserId, String matchedUserName) { }
+
+    private record OutboxRow(long id, long recipientId, long matchedUserId, String matchedUserName,
+                             int attempts, Timestamp createdAt) { }
+
+    public MatchNotificationDispatcher(NamedParameterJdbcTemplate jdbcTemplate,
+                                       SimpMessagingTemplate messagingTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${likes.match-notifications.batch-size:200}") int batchSize,
+                                       @Value("${likes.match-notifications.poll-interval-ms:1000}") long pollIntervalMs,
+                                       @Value("${likes.match-notifications.max-attempts:10}") int maxAttempts,
+                                       @Value("${likes.match-notifications.retry-backoff-ms:500}") long retryBackoffMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+
+        this.enqueuedCounter = Counter.builder("likes.match-notifications.enqueued").register(meterRegistry);
+        this.sentCounter = Counter.builder("likes.match-notifications.sent").register(meterRegistry);
+        this.retriedCounter = Counter.builder("likes.match-notifications.retried").register(meterRegistry);
+        this.droppedCounter = Counter.builder("likes.match-notifications.dropped")
+            .description("Notifications given up on after the maximum number of attempts")
+            .register(meterRegistry);
+        this.deliveryLag = Timer.builder("likes.match-notifications.delivery.lag")
+            .description("Time from the swipe commit to the broker hand-off")
+            .register(meterRegistry);
+    }
+
+    // Started once the schema exists; also picks up rows left over from a previous run
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        dispatcherThread = new Thread(this::runDispatcher, "match-notifier");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wakeUp.release();
+        if (dispatcherThread != null) {
+            dispatcherThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    // Must be called inside the swipe transaction
+    public void enqueue(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = new SqlParameterSource[notifications.size()];
+        for (int i = 0; i < notifications.size(); i++) {
+            Notification notification = notifications.get(i);
+            batch[i] = new MapSqlParameterSource("recipientId", notification.recipientId())
+                .addValue("matchedUserId", notification.matchedUserId())
+                .addValue("matchedUserName", notification.matchedUserName());
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO match_notification_outbox " +
+            "(recipient_id, matched_user_id, matched_user_name, attempts, created_at, next_attempt_at) " +
+            "VALUES (:recipientId, :matchedUserId, :matchedUserName, 0, now(), now())",
+            batch);
+        enqueuedCounter.increment(notifications.size());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    private void wake() {
+        if (wakeUp.availablePermits() == 0) {
+            wakeUp.release();
+        }
+    }
+
+    private void runDispatcher() {
+        while (running) {
+            try {
+                // Keep draining while full batches come back, otherwise wait for a commit or the poll interval
+                int drained;
+                do {
+                    drained = drainBatch();
+                } while (running && drained == batchSize);
+                wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                System.err.println("ERROR dispatching match notifications: " + e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    // Returns the number of rows claimed
+    private int drainBatch() {
+        Integer claimed = transactionTemplate.execute(status -> {
+            List<OutboxRow> rows = jdbcTemplate.query(
+                "SELECT id, recipient_id, matched_user_id, matched_user_name, attempts, created_at " +
+                "FROM match_notification_outbox WHERE next_attempt_at <= now() " +
+                "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+                new MapSqlParameterSource("limit", batchSize),
+                (rs, rowNum) -> new OutboxRow(rs.getLong("id"), rs.getLong("recipient_id"),
+                    rs.getLong("matched_user_id"), rs.getString("matched_user_name"),
+                    rs.getInt("attempts"), rs.getTimestamp("created_at")));
+            if (rows.isEmpty()) {
+                return 0;
+            }
+
+            List<Long> done = new ArrayList<>(rows.size());
+            for (OutboxRow row : rows) {
+                try {
+                    messagingTemplate.convertAndSend(
+                        "/topic/matches/" + row.recipientId(),
+                        new MatchNotification(row.matchedUserName(), row.matchedUserId())
+                    );
+                    done.add(row.id());
+                    sentCounter.increment();
+                    deliveryLag.record(System.currentTimeMillis() - row.createdAt().getTime(), TimeUnit.MILLISECONDS);
+                } catch (MessagingException e) {
+                    int attempts = row.attempts() + 1;
+                    if (attempts >= maxAttempts) {
+                        System.err.println("Dropping match notification " + row.id() + " after " + attempts + " attempts: " + e.getMessage());
+                        droppedCounter.increment();
+                        done.add(row.id());
+                    } else {
+                        retriedCounter.increment();
+                        jdbcTemplate.update(
+                            "UPDATE match_notification_outbox SET attempts = :attempts, " +
+                            "next_attempt_at = now() + :delayMs * interval '1 millisecond' WHERE id = :id",
+                            new MapSqlParameterSource("attempts", attempts)
+                                .addValue("delayMs", retryBackoffMs << Math.min(attempts - 1, 16))
+                                .addValue("id", row.id()));
+                    }
+                }
+            }
+            if (!done.isEmpty()) {
+                jdbcTemplate.update("DELETE FROM match_notification_outbox WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", done));
+            }
+            return rows.size();
+        });
+        return claimed != null ? claimed : 0;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.match_me.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// "Are these two users matched?" answers for the chat hot path (every STOMP message and
+// history fetch). Both answers are cached, so unmatched pairs probing the chat endpoints
+// do not hit the database either. Also keeps each user's partner ids for presence fan-out.
+// Entries are dropped whenever MatchService or the batch writer creates or removes a match
+// for the pair, on this node and (in relay mode, through ClusterCacheEvents) on all others.
+@Component
+public class MatchPairCache {
+
+    // Both maps evict the least recently used entry once they reach likes.match-cache.max-size
+    private final Map<PairKey, CachedAnswer> answers;
+    // Matched partner ids per user, used for presence fan-out
+    private final Map<Long, CachedPartners> partners;
+    private final long ttlMs;
+    private final ClusterCacheEvents clusterCacheEvents;
+
+    // Bumped on every invalidation; a load that raced one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    private record PairKey(long low, long high) {
+        static PairKey of(long userId1, long userId2) {
+            return new PairKey(Math.min(userId1, userId2), Math.max(userId1, userId2));
+        }
+    }
+
+    private record CachedAnswer(boolean matched, long loadedAt) { }
+
+    private record CachedPartners(List<Long> partnerIds, long loadedAt) { }
+
+    public MatchPairCache(MeterRegistry meterRegistry,
+                          ClusterCacheEvents clusterCacheEvents,
+                          @Value("${likes.match-cache.max-size:100000}") int maxSize,
+                          @Value("${likes.match-cache.ttl-ms:300000}") long ttlMs) {
+        this.answers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PairKey, CachedAnswer> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.partners = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPartners> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.ttlMs = ttlMs;
+        this.clusterCacheEvents = clusterCacheEvents;
+        this.hitCounter = Counter.builder("likes.match-cache.requests").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("likes.match-cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("likes.match-cache.size", answers, Map::size).register(meterRegistry);
+    }
+
+    public boolean isMatched(long userId1, long userId2, BooleanSupplier loader) {
+        PairKey key = PairKey.of(userId1, userId2);
+        CachedAnswer cached = answers.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < ttlMs) {
+            hitCounter.increment();
+            return cached.matched();
+        }
+        missCounter.increment();
+
+        long loadGeneration = generation.get();
+        boolean matched = loader.getAsBoolean();
+        if (generation.get() == loadGeneration) {
+            answers.put(key, new CachedAnswer(matched, System.currentTimeMillis()));
+        }
+        return matched;
+    }
+
+    public List<Long> getPartnerIds(long userId, Supplier<List<Long>> loader) {
+        CachedPartners cached = partners.get(userId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < ttlMs) {
+            return cached.partnerIds();
+        }
+        long loadGeneration = generation.get();
+        List<Long> partnerIds = List.copyOf(loader.get());
+        if (generation.get() == loadGeneration) {
+            partners.put(userId, new CachedPartners(partnerIds, System.currentTimeMillis()));
+        }
+        return partnerIds;
+    }
+
+    // Evict now and again after the writing transaction completes,
+    // so a read racing the transaction cannot cache the old answer
+    public void invalidate(long userId1, long userId2) {
+        PairKey key = PairKey.of(userId1, userId2);
+        evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(key);
+                }
+            });
+        }
+        clusterCacheEvents.publish(ClusterCacheEvents.Type.MATCH_PAIR, key.low(), key.high());
+    }
+
+    @EventListener
+    public void onInvalidation(ClusterCacheEvents.Invalidation invalidation) {
+        if (invalidation.type() == ClusterCacheEvents.Type.MATCH_PAIR) {
+            evict(PairKey.of(invalidation.first(), invalidation.second()));
+        }
+    }
+
+    @EventListener
+    public void onReset(ClusterCacheEvents.CachesReset reset) {
+        generation.incrementAndGet();
+        answers.clear();
+        partners.clear();
+    }
+
+    private void evict(PairKey key) {
+        generation.incrementAndGet();
+        answers.remove(key);
+        partners.remove(key.low());
+        partners.remove(key.high());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.match_me.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.match_me.entity.MatchPair;
+import com.example.match_me.repository.MatchPairRepository;
+
+// Reads and writes the materialized matches table.
+// A row is written when a like turns out to be mutual and removed as soon as
+// either side dislikes or removes their like, so match reads never touch user_likes.
+@Service
+public class MatchService {
+
+    @Autowired
+    private MatchPairRepository matchPairRepository;
+
+    @Autowired
+    private MatchPairCache matchPairCache;
+
+    @Autowired
+    private OneTimeBackfills oneTimeBackfills;
+
+    // Advisory lock key for an unordered pair of users
+    public static long pairKey(long userId1, long userId2) {
+        long low = Math.min(userId1, userId2);
+        long high = Math.max(userId1, userId2);
+        return (low << 32) ^ high;
+    }
+
+    // Must be called inside the swipe transaction, before the like is written.
+    // Two users liking each other at the same time would otherwise both miss the reverse like.
+    public void lockPair(Long userId1, Long userId2) {
+        matchPairRepository.lockPair(pairKey(userId1, userId2));
+    }
+
+    // Returns true if the match did not exist yet
+    public boolean recordMatch(Long userId1, Long userId2) {
+        boolean created = matchPairRepository.insertIfAbsent(Math.min(userId1, userId2), Math.max(userId1, userId2)) > 0;
+        if (created) {
+            matchPairCache.invalidate(userId1, userId2);
+        }
+        return created;
+    }
+
+    // Returns true if a match was removed
+    public boolean removeMatch(Long userId1, Long userId2) {
+        boolean removed = matchPairRepository.deleteByPair(Math.min(userId1, userId2), Math.max(userId1, userId2)) > 0;
+        if (removed) {
+            matchPairCache.invalidate(userId1, userId2);
+        }
+        return removed;
+    }
+
+    // Served from MatchPairCache, so a chat burst only queries once per pair
+    public boolean areMatched(Long userId1, Long userId2) {
+        if (userId1 == null || userId2 == null || userId1.equals(userId2)) {
+            return false;
+        }
+        return matchPairCache.isMatched(userId1, userId2,
+            () -> matchPairRepository.existsByPair(Math.min(userId1, userId2), Math.max(userId1, userId2)));
+    }
+
+    public List<MatchPair> getMatches(Long userId) {
+        return matchPairRepository.findByUserId(userId);
+    }
+
+    public List<Long> getPartnerIds(Long userId) {
+        return matchPairCache.getPartnerIds(userId, () -> matchPairRepository.findPartnerIdsByUserId(userId));
+    }
+
+    // Fill the table from existing mutual likes the first time the application starts with it
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMatches() {
+        Integer created = oneTimeBackfills.runOnce("matches-from-user-likes", matchPairRepository::backfillFromUserLikes);
+        if (created != null && created > 0) {
+            System.out.println("Backfilled " + created + " matches from user_likes");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.match_me.service;
+
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.match_me.repository.BackfillMarkerRepository;
+
+// Runs a startup backfill once per database. Completion is recorded in backfill_markers in the
+// backfill's own transaction, so it does not depend on a table still being empty (early requests
+// may already have written to it). Backfills must be idempotent (INSERT ... ON CONFLICT DO NOTHING):
+// a database that ran one before the markers existed runs it once more.
+@Component
+public class OneTimeBackfills {
+
+    private final BackfillMarkerRepository backfillMarkerRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OneTimeBackfills(BackfillMarkerRepository backfillMarkerRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.backfillMarkerRepository = backfillMarkerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Returns the backfill's result, or null if it already ran or failed. Errors are caught
+    // outside the transaction, so a failed statement rolls back cleanly and is retried on the
+    // next start instead of surfacing as an UnexpectedRollbackException.
+    public <T> T runOnce(String name, Supplier<T> backfill) {
+        try {
+            if (backfillMarkerRepository.existsById(name)) {
+                return null;
+            }
+            return transactionTemplate.execute(status -> {
+                backfillMarkerRepository.lock(name);
+                // Another node may have finished it while we waited for the lock
+                if (backfillMarkerRepository.existsById(name)) {
+                    return null;
+                }
+                T result = backfill.get();
+                backfillMarkerRepository.markDone(name);
+                return result;
+            });
+        } catch (RuntimeException e) {
+            System.err.println("ERROR running backfill " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
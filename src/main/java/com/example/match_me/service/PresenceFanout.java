@@ -0,0 +1,101 @@
+package com.example.match_me.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Delivers presence changes only to a user's online matches, on their /user/queue/presence,
+// instead of broadcasting every change to every client on /topic/presence.
+// Changes are collected per user and flushed once per window: the latest state wins and a
+// flap that ends where it started (offline -> online -> offline) sends nothing at all.
+@Component
+public class PresenceFanout {
+
+    private final PresenceService presenceService;
+    private final MatchService matchService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // userId -> latest state reported in the current window
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    // Users whose last published state was online
+    private final Set<Long> publishedOnline = ConcurrentHashMap.newKeySet();
+
+    private final Counter sentCounter;
+    private final Counter coalescedCounter;
+
+    public PresenceFanout(PresenceService presenceService,
+                          MatchService matchService,
+                          SimpMessagingTemplate messagingTemplate,
+                          MeterRegistry meterRegistry) {
+        this.presenceService = presenceService;
+        this.matchService = matchService;
+        this.messagingTemplate = messagingTemplate;
+        this.sentCounter = Counter.builder("presence.fanout.sent").register(meterRegistry);
+        this.coalescedCounter = Counter.builder("presence.fanout.coalesced")
+            .description("Presence changes dropped because the state flapped back within one window")
+            .register(meterRegistry);
+    }
+
+    public void publish(Long userId, boolean online) {
+        pending.put(userId, online);
+    }
+
+    @Scheduled(fixedRateString = "${presence.fanout-window-ms:1000}")
+    public void flush() {
+        for (Map.Entry<Long, Boolean> entry : pending.entrySet()) {
+            Long userId = entry.getKey();
+            boolean online = entry.getValue();
+            // Removing only this exact value keeps a change that arrived meanwhile for the next window
+            pending.remove(userId, online);
+
+            boolean changed = online ? publishedOnline.add(userId) : publishedOnline.remove(userId);
+            if (!changed) {
+                coalescedCounter.increment();
+                continue;
+            }
+            sendToOnlinePartners(userId, status(userId, online));
+        }
+    }
+
+    // Current state of the user's matches, sent to the requesting user only
+    public void sendSnapshot(Long userId, String email) {
+        for (Long partnerId : matchService.getPartnerIds(userId)) {
+            PresenceService.Snapshot presence = presenceService.get(partnerId);
+            if (presence != null) {
+                Map<String, Object> status = new HashMap<>();
+                status.put("user", partnerId.toString());
+                status.put("online", presence.online());
+                status.put("timestamp", presence.lastHeartbeat());
+                messagingTemplate.convertAndSendToUser(email, "/queue/presence", status);
+            }
+        }
+    }
+
+    private void sendToOnlinePartners(Long userId, Map<String, Object> status) {
+        List<Long> partnerIds = matchService.getPartnerIds(userId);
+        for (Long partnerId : partnerIds) {
+            String email = presenceService.getEmail(partnerId);
+            if (email != null) {
+                messagingTemplate.convertAndSendToUser(email, "/queue/presence", status);
+                sentCounter.increment();
+            }
+        }
+    }
+
+    private static Map<String, Object> status(Long userId, boolean online) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("user", userId.toString());
+        status.put("online", online);
+        status.put("timestamp", System.currentTimeMillis());
+        return status;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.match_me.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+
+import com.example.match_me.repository.UserRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Who is online, shared by the STOMP inbound threads and the expiry tick.
+// One entry per user with the open STOMP sessions (several tabs count once) and the last
+// heartbeat. Stale users are found with a timing wheel: every heartbeat files the user under the
+// tick at which it would expire, and each tick only looks at the users filed under it instead
+// of scanning the whole registry.
+//
+// The registry only holds this node's sessions. In relay mode a user connected to another node
+// is looked up in Spring's user registry, which the nodes share over the broker (see
+// WebSocketConfig), so fan-out and receipts still reach them through the user destination broadcast.
+@Service
+public class PresenceService {
+
+    private final long staleThresholdMs;
+    private final long tickMs;
+
+    private final Map<Long, Presence> presences = new ConcurrentHashMap<>();
+
+    private final boolean relay;
+    private final ObjectProvider<SimpUserRegistry> userRegistry;
+    private final UserRepository userRepository;
+    // Emails of users that are not connected here, for the remote lookup
+    private final Map<Long, String> remoteEmails;
+
+    // wheel[tick % length] holds the users that expire at that tick (entries may be outdated)
+    private final Set<Long>[] wheel;
+    private long lastProcessedTick;
+
+    // Copy of one user's state for readers
+    public record Snapshot(boolean online, long lastHeartbeat) { }
+
+    private static class Presence {
+        final Set<String> sessions = new HashSet<>();
+        volatile String email;
+        long lastHeartbeat;
+        long expiryTick;
+    }
+
+    @SuppressWarnings("unchecked")
+    public PresenceService(MeterRegistry meterRegistry,
+                           ObjectProvider<SimpUserRegistry> userRegistry,
+                           UserRepository userRepository,
+                           @Value("${chat.broker.mode:simple}") String brokerMode,
+                           @Value("${presence.stale-threshold-ms:45000}") long staleThresholdMs,
+                           @Value("${presence.tick-ms:5000}") long tickMs,
+                           @Value("${presence.remote-email-cache-size:10000}") int remoteEmailCacheSize) {
+        this.staleThresholdMs = staleThresholdMs;
+        this.tickMs = tickMs;
+        this.relay = "relay".equalsIgnoreCase(brokerMode);
+        this.userRegistry = userRegistry;
+        this.userRepository = userRepository;
+        this.remoteEmails = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > remoteEmailCacheSize;
+            }
+        });
+        // One slot per tick within the expiry horizon, plus slack for rounding
+        int slots = (int) (staleThresholdMs / tickMs) + 2;
+        this.wheel = new Set[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.lastProcessedTick = System.currentTimeMillis() / tickMs;
+        Gauge.builder("presence.online.users", presences, Map::size).register(meterRegistry);
+    }
+
+    // Returns true if the user was offline before this heartbeat
+    // email is the STOMP principal name, used to address the user's /user/queue destinations
+    public boolean heartbeat(long userId, String email, String sessionId) {
+        return heartbeat(userId, email, sessionId, System.currentTimeMillis());
+    }
+
+    // The time is a parameter so tests can drive the wheel
+    boolean heartbeat(long userId, String email, String sessionId, long now) {
+        boolean[] cameOnline = { false };
+        presences.compute(userId, (id, presence) -> {
+            if (presence == null) {
+                presence = new Presence();
+                cameOnline[0] = true;
+            }
+            if (sessionId != null) {
+                presence.sessions.add(sessionId);
+            }
+            presence.email = email;
+            presence.lastHeartbeat = now;
+            long expiryTick = tickOf(now + staleThresholdMs);
+            if (expiryTick != presence.expiryTick) {
+                presence.expiryTick = expiryTick;
+                wheel[slotOf(expiryTick)].add(id);
+            }
+            return presence;
+        });
+        return cameOnline[0];
+    }
+
+    // Returns true if this was the user's last open session
+    public boolean disconnect(long userId, String sessionId) {
+        boolean[] wentOffline = { false };
+        presences.computeIfPresent(userId, (id, presence) -> {
+            presence.sessions.remove(sessionId);
+            if (presence.sessions.isEmpty()) {
+                wentOffline[0] = true;
+                return null;
+            }
+            return presence;
+        });
+        return wentOffline[0];
+    }
+
+    public Snapshot get(long userId) {
+        Snapshot[] snapshot = { null };
+        presences.computeIfPresent(userId, (id, presence) -> {
+            snapshot[0] = new Snapshot(true, presence.lastHeartbeat);
+            return presence;
+        });
+        if (snapshot[0] == null && remoteEmail(userId) != null) {
+            // Heartbeats stay on the other node; connected there means online now
+            snapshot[0] = new Snapshot(true, System.currentTimeMillis());
+        }
+        return snapshot[0];
+    }
+
+    public boolean isOnline(long userId) {
+        return presences.containsKey(userId) || remoteEmail(userId) != null;
+    }
+
+    // null if the user is offline
+    public String getEmail(long userId) {
+        Presence presence = presences.get(userId);
+        return presence != null ? presence.email : remoteEmail(userId);
+    }
+
+    // Relay mode only: the user's email if another node has a session for them
+    private String remoteEmail(long userId) {
+        if (!relay) {
+            return null;
+        }
+        SimpUserRegistry registry = userRegistry.getIfAvailable();
+        if (registry == null || registry.getUserCount() == 0) {
+            return null;
+        }
+        String email = remoteEmails.get(userId);
+        if (email == null) {
+            email = userRepository.findEmailById(userId).orElse(null);
+            if (email == null) {
+                return null;
+            }
+            remoteEmails.put(userId, email);
+        }
+        return registry.getUser(email) != null ? email : null;
+    }
+
+    // Advances the wheel to the current time and returns the users that went stale
+    public List<Long> expireStale() {
+        return expireStale(System.currentTimeMillis());
+    }
+
+    synchronized List<Long> expireStale(long now) {
+        long currentTick = now / tickMs;
+        List<Long> expired = new ArrayList<>();
+        for (long tick = lastProcessedTick + 1; tick <= currentTick; tick++) {
+            Set<Long> slot = wheel[slotOf(tick)];
+            // Filed under a later tick that shares this slot; only possible while catching up on missed ticks
+            List<Long> later = new ArrayList<>();
+            for (Long userId : slot) {
+                slot.remove(userId);
+                long dueTick = tick;
+                presences.computeIfPresent(userId, (id, presence) -> {
+                    if (presence.expiryTick != dueTick) {
+                        if (presence.expiryTick > dueTick && slotOf(presence.expiryTick) == slotOf(dueTick)) {
+                            later.add(id);
+                        }
+                        // Otherwise a later heartbeat has already filed the user under another slot
+                        return presence;
+                    }
+                    if (now - presence.lastHeartbeat < staleThresholdMs) {
+                        presence.expiryTick = dueTick + 1;
+                        wheel[slotOf(dueTick + 1)].add(id);
+                        return presence;
+                    }
+                    expired.add(id);
+                    return null;
+                });
+            }
+            slot.addAll(later);
+        }
+        lastProcessedTick = currentTick;
+        return expired;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    private long tickOf(long timeMs) {
+        return (timeMs + tickMs - 1) / tickMs;
+    }
+
+    private int slotOf(long tick) {
+        return (int) (tick % wheel.length);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.match_me.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.match_me.DTO.ReadReceipt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Read receipts as a per-(chat, user) watermark: the newest message id the user has read,
+// stored in chat_summaries.read_message_id. Receipts are coalesced in memory (only the highest
+// id per chat and user is kept), written in one statement per flush, and the new watermark is
+// pushed to the other participant. Anything older than the watermark counts as read, so
+// "is there something unread" is last_message_id > read_message_id instead of a count.
+// unread_count is only reset by a read up to the last message; after a partial read it is an
+// upper bound until then (the flush never counts messages).
+// A failed write puts its watermarks back into pending, so the next flush retries them.
+@Service
+public class ReadReceiptService {
+
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final PresenceService presenceService;
+    private final TaskScheduler taskScheduler;
+    private final int maxPending;
+
+    private final Map<Key, Long> pending = new ConcurrentHashMap<>();
+    // At most one early flush queued on the scheduler at a time
+    private final AtomicBoolean earlyFlushQueued = new AtomicBoolean();
+
+    private final Counter receivedCounter;
+    private final Counter writtenCounter;
+    private final Counter pushedCounter;
+    private final Counter failedCounter;
+
+    private record Key(Long userId, Long chatId) { }
+
+    private record Update(Long recipientId, ReadReceipt receipt) { }
+
+    public ReadReceiptService(NamedParameterJdbcTemplate jdbcTemplate,
+                              SimpMessagingTemplate messagingTemplate,
+                              PresenceService presenceService,
+                              @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+                              MeterRegistry meterRegistry,
+                              @Value("${chat.read-receipts.max-pending:100000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.presenceService = presenceService;
+        this.taskScheduler = taskScheduler;
+        this.maxPending = maxPending;
+        this.receivedCounter = Counter.builder("chat.read-receipts.received").register(meterRegistry);
+        this.writtenCounter = Counter.builder("chat.read-receipts.written")
+            .description("Watermarks written; received minus written were coalesced or stale")
+            .register(meterRegistry);
+        this.pushedCounter = Counter.builder("chat.read-receipts.pushed").register(meterRegistry);
+        this.failedCounter = Counter.builder("chat.read-receipts.write.failed")
+            .description("Flush chunks that failed and were put back for the next flush")
+            .register(meterRegistry);
+        Gauge.builder("chat.read-receipts.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    public void submit(Long userId, Long chatId, Long messageId) {
+        if (userId == null || chatId == null || messageId == null || messageId <= 0) {
+            return;
+        }
+        receivedCounter.increment();
+        pending.merge(new Key(userId, chatId), messageId, Math::max);
+        if (pending.size() > maxPending && earlyFlushQueued.compareAndSet(false, true)) {
+            // Flooded between flushes: write now rather than grow without bound, but on the
+            // scheduler, not on the caller's (STOMP inbound or request) thread
+            taskScheduler.schedule(this::earlyFlush, Instant.now());
+        }
+    }
+
+    private void earlyFlush() {
+        earlyFlushQueued.set(false);
+        flush();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.read-receipts.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Key, Long>> batch = new ArrayList<>(Math.min(pending.size(), FLUSH_CHUNK_SIZE));
+        for (Map.Entry<Key, Long> entry : pending.entrySet()) {
+            // remove(key, value) keeps a receipt that raised the id after we read it for the next flush
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+            if (batch.size() == FLUSH_CHUNK_SIZE) {
+                if (!write(batch)) {
+                    // The rest stays pending; retried with the next flush
+                    return;
+                }
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // False if the statement failed; the batch is back in pending then
+    private boolean write(List<Map.Entry<Key, Long>> batch) {
+        // A read up to the last message clears unread_count, a partial read leaves it (approximate)
+        StringBuilder sql = new StringBuilder(
+            "UPDATE chat_summaries s SET read_message_id = LEAST(v.message_id, s.last_message_id), " +
+            "unread_count = CASE WHEN v.message_id >= s.last_message_id THEN 0 ELSE s.unread_count END " +
+            "FROM (VALUES ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < batch.size(); i++) {
+            Map.Entry<Key, Long> entry = batch.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(:u").append(i).append(" AS bigint), CAST(:c").append(i)
+               .append(" AS bigint), CAST(:m").append(i).append(" AS bigint))");
+            params.addValue("u" + i, entry.getKey().userId());
+            params.addValue("c" + i, entry.getKey().chatId());
+            params.addValue("m" + i, entry.getValue());
+        }
+        // Only rows that really move forward are updated (and pushed); the summary row also scopes
+        // the receipt to the chat's participants
+        sql.append(") v(user_id, chat_id, message_id) " +
+                   "WHERE s.user_id = v.user_id AND s.chat_id = v.chat_id " +
+                   "AND s.read_message_id < LEAST(v.message_id, s.last_message_id) " +
+                   "RETURNING s.user_id, s.chat_id, s.other_user_id, s.read_message_id");
+        List<Update> updated = new ArrayList<>();
+        try {
+            jdbcTemplate.query(sql.toString(), params, rs -> {
+                updated.add(new Update(rs.getLong("other_user_id"),
+                    new ReadReceipt(rs.getLong("chat_id"), rs.getLong("user_id"), rs.getLong("read_message_id"))));
+            });
+        } catch (RuntimeException e) {
+            System.err.println("ERROR writing " + batch.size() + " read receipts: " + e.getMessage());
+            failedCounter.increment();
+            for (Map.Entry<Key, Long> entry : batch) {
+                pending.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+            return false;
+        }
+        writtenCounter.increment(updated.size());
+        for (Update update : updated) {
+            push(update.recipientId(), update.receipt());
+        }
+        return true;
+    }
+
+    // Offline partners pick the watermark up from the inbox (otherReadMessageId) instead
+    private void push(Long recipientId, ReadReceipt receipt) {
+        String email = presenceService.getEmail(recipientId);
+        if (email == null) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(email, "/queue/read-receipts", receipt);
+            pushedCounter.increment();
+        } catch (Exception e) {
+            System.err.println("Error pushing read receipt to user " + recipientId + ": " + e.getMessage());
+        }
+    }
+}
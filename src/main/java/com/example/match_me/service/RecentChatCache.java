@@ -0,0 +1,276 @@
+package com.example.match_me.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.match_me.DTO.UsersChatDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// In-memory tail of the most recent messages per chat, so opening an active conversation
+// does not hit the database. Each chat keeps a ring of its last N messages plus the total
+// message count; idle chats fall out in LRU order.
+//
+// A ring is filled lazily on the first read. Messages saved while a ring is being filled are
+// held back and merged in afterwards, so a message committed during the load is never lost.
+//
+// In relay mode messages saved on other nodes never reach this node's rings, so every append
+// also drops the chat's ring on the other nodes (ClusterCacheEvents); they reload it on the next read.
+@Component
+public class RecentChatCache {
+
+    private final int messagesPerChat;
+    private final Map<Long, ChatRing> rings;
+    private final ClusterCacheEvents clusterCacheEvents;
+
+    // chat id per ordered user pair; a chat's id never changes once created
+    private final Map<Long, Long> chatIdsByPair;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    // Loaded newest first together with the chat's total message count
+    public record Tail(List<UsersChatDTO> newestFirst, long totalMessages) { }
+
+    public RecentChatCache(MeterRegistry meterRegistry,
+                           ClusterCacheEvents clusterCacheEvents,
+                           @Value("${chat.recent-cache.messages-per-chat:50}") int messagesPerChat,
+                           @Value("${chat.recent-cache.max-chats:10000}") int maxChats) {
+        this.messagesPerChat = messagesPerChat;
+        this.clusterCacheEvents = clusterCacheEvents;
+        this.rings = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ChatRing> eldest) {
+                return size() > maxChats;
+            }
+        });
+        this.chatIdsByPair = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxChats;
+            }
+        });
+        this.hitCounter = Counter.builder("chat.recent-cache.requests").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("chat.recent-cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("chat.recent-cache.chats", rings, Map::size).register(meterRegistry);
+    }
+
+    public int getMessagesPerChat() {
+        return messagesPerChat;
+    }
+
+    public Long getChatId(Long user1Id, Long user2Id) {
+        return chatIdsByPair.get(MatchService.pairKey(user1Id, user2Id));
+    }
+
+    public void putChatId(Long user1Id, Long user2Id, Long chatId) {
+        chatIdsByPair.put(MatchService.pairKey(user1Id, user2Id), chatId);
+    }
+
+    // Returns up to `limit` messages newest first, skipping `offset`, or null if the range is not
+    // covered by the ring. `loader` reads the newest messagesPerChat rows when the ring is empty.
+    public Tail getRecent(Long chatId, int offset, int limit, Function<Long, Tail> loader) {
+        if (offset + limit > messagesPerChat) {
+            return null;
+        }
+        return ringFor(chatId, loader).read(offset, limit);
+    }
+
+    // Messages newer than `afterId` in chronological order, at most `limit`, or null if `afterId`
+    // is not in the ring (older than the cached tail, or not a message of this chat)
+    public List<UsersChatDTO> getAfter(Long chatId, long afterId, int limit, Function<Long, Tail> loader) {
+        return ringFor(chatId, loader).readAfter(afterId, limit);
+    }
+
+    private ChatRing ringFor(Long chatId, Function<Long, Tail> loader) {
+        ChatRing ring;
+        boolean load;
+        synchronized (rings) {
+            ring = rings.get(chatId);
+            load = ring == null;
+            if (load) {
+                ring = new ChatRing();
+                rings.put(chatId, ring);
+            }
+        }
+        if (load) {
+            missCounter.increment();
+            try {
+                ring.fill(loader.apply(chatId));
+            } catch (RuntimeException e) {
+                rings.remove(chatId, ring);
+                ring.fail();
+                throw e;
+            }
+        } else {
+            hitCounter.increment();
+        }
+        return ring;
+    }
+
+    // Drops everything, e.g. after chats were merged
+    public void clear() {
+        rings.clear();
+        chatIdsByPair.clear();
+    }
+
+    // Called after the message has committed; chats that are not cached are left alone
+    public void append(UsersChatDTO message) {
+        ChatRing ring = rings.get(message.getChatId());
+        if (ring != null) {
+            ring.append(message);
+        }
+        clusterCacheEvents.publish(ClusterCacheEvents.Type.CHAT_MESSAGES, message.getChatId(), 0);
+    }
+
+    // A reader still holding the dropped ring finishes with it, the next one loads a new ring
+    @EventListener
+    public void onInvalidation(ClusterCacheEvents.Invalidation invalidation) {
+        if (invalidation.type() == ClusterCacheEvents.Type.CHAT_MESSAGES) {
+            rings.remove(invalidation.first());
+        }
+    }
+
+    @EventListener
+    public void onReset(ClusterCacheEvents.CachesReset reset) {
+        rings.clear();
+    }
+
+    private class ChatRing {
+        // oldest first
+        private final Deque<UsersChatDTO> messages = new ArrayDeque<>(messagesPerChat);
+        private final List<UsersChatDTO> pending = new ArrayList<>();
+        private long totalMessages;
+        private boolean loaded = false;
+        private boolean failed = false;
+
+        synchronized void fill(Tail tail) {
+            for (int i = tail.newestFirst().size() - 1; i >= 0; i--) {
+                addLast(tail.newestFirst().get(i));
+            }
+            totalMessages = tail.totalMessages();
+            loaded = true;
+            for (UsersChatDTO message : pending) {
+                insert(message);
+            }
+            pending.clear();
+            notifyAll();
+        }
+
+        synchronized void fail() {
+            failed = true;
+            notifyAll();
+        }
+
+        synchronized void append(UsersChatDTO message) {
+            if (!loaded) {
+                pending.add(message);
+                return;
+            }
+            insert(message);
+        }
+
+        // A message that committed before the loader query but whose afterCommit append runs
+        // after fill() is already in the ring: anything not newer than the newest message is
+        // dropped unless it is missing (two commits that finished out of id order)
+        private void insert(UsersChatDTO message) {
+            if (messages.isEmpty() || message.getId() > messages.peekLast().getId()) {
+                addLast(message);
+                totalMessages++;
+                return;
+            }
+            if (contains(message.getId())) {
+                return;
+            }
+            if (message.getId() < messages.peekFirst().getId()) {
+                // A full ring does not reach back that far
+                if (messages.size() < messagesPerChat) {
+                    messages.addFirst(message);
+                    totalMessages++;
+                }
+                return;
+            }
+            Deque<UsersChatDTO> newer = new ArrayDeque<>();
+            while (messages.peekLast().getId() > message.getId()) {
+                newer.push(messages.removeLast());
+            }
+            messages.addLast(message);
+            messages.addAll(newer);
+            totalMessages++;
+            if (messages.size() > messagesPerChat) {
+                messages.removeFirst();
+            }
+        }
+
+        private boolean contains(long id) {
+            for (UsersChatDTO cached : messages) {
+                if (cached.getId() == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized Tail read(int offset, int limit) {
+            awaitLoaded();
+            List<UsersChatDTO> page = new ArrayList<>(limit);
+            Iterator<UsersChatDTO> newestFirst = messages.descendingIterator();
+            for (int i = 0; newestFirst.hasNext() && page.size() < limit; i++) {
+                UsersChatDTO message = newestFirst.next();
+                if (i >= offset) {
+                    page.add(message);
+                }
+            }
+            return new Tail(page, totalMessages);
+        }
+
+        synchronized List<UsersChatDTO> readAfter(long afterId, int limit) {
+            awaitLoaded();
+            List<UsersChatDTO> newer = new ArrayList<>();
+            Iterator<UsersChatDTO> newestFirst = messages.descendingIterator();
+            while (newestFirst.hasNext()) {
+                UsersChatDTO message = newestFirst.next();
+                if (message.getId() != null && message.getId() == afterId) {
+                    Collections.reverse(newer);
+                    return newer.size() > limit ? new ArrayList<>(newer.subList(0, limit)) : newer;
+                }
+                newer.add(message);
+            }
+            return null;
+        }
+
+        private void awaitLoaded() {
+            while (!loaded && !failed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while loading recent messages", e);
+                }
+            }
+            if (failed) {
+                throw new IllegalStateException("Loading recent messages failed");
+            }
+        }
+
+        private void addLast(UsersChatDTO message) {
+            if (messages.size() == messagesPerChat) {
+                messages.removeFirst();
+            }
+            messages.addLast(message);
+        }
+    }
+}
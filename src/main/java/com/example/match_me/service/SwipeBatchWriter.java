@@ -0,0 +1,345 @@
+package com.example.match_me.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.match_me.DTO.LikeResponse;
+
+// Applies a batch of swipes with a fixed number of statements:
+// one user existence check, one read of the previous states, one multi-row upsert,
+// one set-based match lookup, one insert/delete each on the matches table
+// and one counter upsert. Removals of an interaction go through the same batch so they stay
+// ordered with the swipes of the write-behind queue.
+@Service
+public class SwipeBatchWriter {
+
+    // Keeps each statement well below the Postgres bind parameter limit
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final MatchNotificationDispatcher matchNotificationDispatcher;
+    private final InteractionBloomFilter interactionBloomFilter;
+    private final LikeStatsService likeStatsService;
+    private final DisplayNameCache displayNameCache;
+    private final MatchPairCache matchPairCache;
+    private final SwipeEventLog swipeEventLog;
+
+    public SwipeBatchWriter(NamedParameterJdbcTemplate jdbcTemplate,
+                            MatchNotificationDispatcher matchNotificationDispatcher,
+                            InteractionBloomFilter interactionBloomFilter,
+                            LikeStatsService likeStatsService,
+                            DisplayNameCache displayNameCache,
+                            MatchPairCache matchPairCache,
+                            SwipeEventLog swipeEventLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.matchNotificationDispatcher = matchNotificationDispatcher;
+        this.interactionBloomFilter = interactionBloomFilter;
+        this.likeStatsService = likeStatsService;
+        this.displayNameCache = displayNameCache;
+        this.matchPairCache = matchPairCache;
+        this.swipeEventLog = swipeEventLog;
+    }
+
+    public record Swipe(Long likerId, Long likedUserId, boolean like, boolean remove) {
+
+        public Swipe(Long likerId, Long likedUserId, boolean like) {
+            this(likerId, likedUserId, like, false);
+        }
+
+        // Deletes the liker's interaction with likedUserId (like LikeService.removeInteraction)
+        public static Swipe removal(Long likerId, Long likedUserId) {
+            return new Swipe(likerId, likedUserId, false, true);
+        }
+    }
+
+    private record Pair(long first, long second) { }
+
+    // Returns one response per input swipe, in input order
+    @Transactional
+    public List<LikeResponse> applySwipes(List<Swipe> swipes) {
+        LikeResponse[] results = new LikeResponse[swipes.size()];
+
+        // The last swipe for a pair wins, earlier ones in the same batch are superseded
+        Map<Pair, Integer> latestByPair = new LinkedHashMap<>();
+        Set<Long> userIds = new HashSet<>();
+        for (int i = 0; i < swipes.size(); i++) {
+            Swipe swipe = swipes.get(i);
+            if (swipe.likerId() == null || swipe.likedUserId() == null) {
+                results[i] = new LikeResponse(false, "User not found");
+            } else if (swipe.likerId().equals(swipe.likedUserId())) {
+                results[i] = new LikeResponse(false, "Cannot interact with yourself");
+            } else {
+                Integer previous = latestByPair.put(new Pair(swipe.likerId(), swipe.likedUserId()), i);
+                if (previous != null) {
+                    results[previous] = successResponse(swipes.get(previous), false);
+                }
+                userIds.add(swipe.likerId());
+                userIds.add(swipe.likedUserId());
+            }
+        }
+        if (latestByPair.isEmpty()) {
+            return List.of(results);
+        }
+
+        Set<Long> existingUserIds = findExistingUserIds(userIds);
+        List<Swipe> toWrite = new ArrayList<>();
+        List<Integer> toWriteIndexes = new ArrayList<>();
+        for (Map.Entry<Pair, Integer> entry : latestByPair.entrySet()) {
+            Pair pair = entry.getKey();
+            if (existingUserIds.contains(pair.first()) && existingUserIds.contains(pair.second())) {
+                toWrite.add(swipes.get(entry.getValue()));
+                toWriteIndexes.add(entry.getValue());
+            } else {
+                results[entry.getValue()] = new LikeResponse(false, "User not found");
+            }
+        }
+        if (toWrite.isEmpty()) {
+            return List.of(results);
+        }
+
+        lockPairs(toWrite);
+        Map<Pair, Boolean> previousStates = findCurrentStates(toWrite);
+        upsertInteractions(toWrite.stream().filter(swipe -> !swipe.remove()).toList());
+        deleteInteractions(toWrite.stream().filter(Swipe::remove).toList());
+
+        Set<Pair> mutualPairs = findReverseLikes(toWrite);
+        List<Swipe> newMatches = new ArrayList<>();
+        // Dislikes and removed likes end any match between the pair
+        List<Swipe> dislikes = new ArrayList<>();
+        LikeStatsService.Deltas statsDeltas = new LikeStatsService.Deltas();
+        List<SwipeEventLog.SwipeEvent> events = new ArrayList<>(toWrite.size());
+        Instant now = Instant.now();
+        for (int i = 0; i < toWrite.size(); i++) {
+            Swipe swipe = toWrite.get(i);
+            Pair pair = new Pair(swipe.likerId(), swipe.likedUserId());
+            if (swipe.remove()) {
+                Boolean previous = previousStates.get(pair);
+                if (previous == null) {
+                    results[toWriteIndexes.get(i)] = new LikeResponse(false, "Failed to remove interaction");
+                    continue;
+                }
+                if (previous) {
+                    dislikes.add(swipe);
+                }
+                statsDeltas.interaction(swipe.likerId(), swipe.likedUserId(), previous, null);
+                results[toWriteIndexes.get(i)] = successResponse(swipe, false);
+                events.add(new SwipeEventLog.SwipeEvent(swipe.likerId(), swipe.likedUserId(),
+                    SwipeEventLog.EventType.REMOVE, now));
+                continue;
+            }
+            boolean isMatch = swipe.like() && mutualPairs.contains(pair);
+            if (isMatch) {
+                newMatches.add(swipe);
+            } else if (!swipe.like()) {
+                dislikes.add(swipe);
+            }
+            statsDeltas.interaction(swipe.likerId(), swipe.likedUserId(), previousStates.get(pair), swipe.like());
+            results[toWriteIndexes.get(i)] = successResponse(swipe, isMatch);
+            events.add(new SwipeEventLog.SwipeEvent(swipe.likerId(), swipe.likedUserId(),
+                swipe.like() ? SwipeEventLog.EventType.LIKE : SwipeEventLog.EventType.DISLIKE, now));
+        }
+
+        List<Pair> createdMatches = insertMatches(newMatches);
+        for (Pair created : createdMatches) {
+            statsDeltas.match(created.first(), created.second(), 1);
+            matchPairCache.invalidate(created.first(), created.second());
+        }
+        for (Pair removed : deleteMatches(dislikes)) {
+            statsDeltas.match(removed.first(), removed.second(), -1);
+            matchPairCache.invalidate(removed.first(), removed.second());
+        }
+        likeStatsService.apply(statsDeltas);
+        swipeEventLog.record(events);
+
+        // Only pairs that became a match now: both directions in one batch or a re-like of an
+        // existing match must not notify twice
+        if (!createdMatches.isEmpty()) {
+            notifyMatches(createdMatches);
+        }
+        return List.of(results);
+    }
+
+    private LikeResponse successResponse(Swipe swipe, boolean isMatch) {
+        if (swipe.remove()) {
+            return new LikeResponse(true, "Interaction removed successfully", false, swipe.likedUserId());
+        }
+        String message = isMatch ? "It's a match!" :
+                       (swipe.like() ? "Like sent successfully" : "Dislike recorded");
+        return new LikeResponse(true, message, isMatch, swipe.likedUserId());
+    }
+
+    private Set<Long> findExistingUserIds(Set<Long> userIds) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+            "SELECT id FROM users WHERE id IN (:ids)",
+            new MapSqlParameterSource("ids", userIds),
+            Long.class));
+    }
+
+    // Same per-pair advisory locks as the synchronous path, taken in key order to avoid deadlocks
+    private void lockPairs(List<Swipe> swipes) {
+        Set<Long> keys = new TreeSet<>();
+        for (Swipe swipe : swipes) {
+            keys.add(MatchService.pairKey(swipe.likerId(), swipe.likedUserId()));
+        }
+        List<Long> ordered = new ArrayList<>(keys);
+        for (int start = 0; start < ordered.size(); start += MAX_ROWS_PER_STATEMENT) {
+            List<Long> chunk = ordered.subList(start, Math.min(ordered.size(), start + MAX_ROWS_PER_STATEMENT));
+            jdbcTemplate.query(
+                "SELECT (SELECT 1 FROM pg_advisory_xact_lock(k.key)) FROM unnest(ARRAY[:keys]::bigint[]) AS k(key) ORDER BY k.key",
+                new MapSqlParameterSource("keys", chunk),
+                rs -> { });
+        }
+    }
+
+    // is_like of the rows this batch is about to overwrite (missing = first interaction)
+    private Map<Pair, Boolean> findCurrentStates(List<Swipe> swipes) {
+        Map<Pair, Boolean> states = new HashMap<>();
+        for (List<Swipe> chunk : chunks(swipes)) {
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            String rows = pairRows(chunk, params, false, false);
+            jdbcTemplate.query("SELECT liker_id, liked_id, is_like FROM user_likes WHERE (liker_id, liked_id) IN (" + rows + ")",
+                params,
+                rs -> {
+                    states.put(new Pair(rs.getLong("liker_id"), rs.getLong("liked_id")), rs.getBoolean("is_like"));
+                });
+        }
+        return states;
+    }
+
+    // INSERT ... ON CONFLICT keeps the unique (liker_id, liked_id) row and flips is_like in place
+    private void upsertInteractions(List<Swipe> swipes) {
+        for (List<Swipe> chunk : chunks(swipes)) {
+            StringBuilder sql = new StringBuilder("INSERT INTO user_likes (liker_id, liked_id, is_like) VALUES ");
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            for (int i = 0; i < chunk.size(); i++) {
+                Swipe swipe = chunk.get(i);
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append("(:liker").append(i).append(", :liked").append(i).append(", :like").append(i).append(")");
+                params.addValue("liker" + i, swipe.likerId());
+                params.addValue("liked" + i, swipe.likedUserId());
+                params.addValue("like" + i, swipe.like());
+                // Added before the insert so concurrent checks never see a false negative
+                interactionBloomFilter.add(swipe.likerId(), swipe.likedUserId());
+            }
+            sql.append(" ON CONFLICT (liker_id, liked_id) DO UPDATE SET is_like = EXCLUDED.is_like");
+            jdbcTemplate.update(sql.toString(), params);
+        }
+    }
+
+    private void deleteInteractions(List<Swipe> removals) {
+        for (List<Swipe> chunk : chunks(removals)) {
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            String rows = pairRows(chunk, params, false, false);
+            jdbcTemplate.update("DELETE FROM user_likes WHERE (liker_id, liked_id) IN (" + rows + ")", params);
+        }
+    }
+
+    // Returns the (liker, liked) pairs of this batch whose reverse interaction is a like
+    private Set<Pair> findReverseLikes(List<Swipe> swipes) {
+        Set<Pair> mutual = new HashSet<>();
+        List<Swipe> likes = swipes.stream().filter(Swipe::like).toList();
+        for (List<Swipe> chunk : chunks(likes)) {
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            // Reverse direction: the other user liking this swipe's liker
+            String rows = pairRows(chunk, params, true, false);
+            jdbcTemplate.query("SELECT liker_id, liked_id FROM user_likes WHERE is_like = true AND (liker_id, liked_id) IN (" + rows + ")",
+                params,
+                rs -> {
+                    mutual.add(new Pair(rs.getLong("liked_id"), rs.getLong("liker_id")));
+                });
+        }
+        return mutual;
+    }
+
+    // Returns the ordered (low, high) pairs that did not exist yet
+    private List<Pair> insertMatches(List<Swipe> matches) {
+        List<Pair> created = new ArrayList<>();
+        for (List<Swipe> chunk : chunks(matches)) {
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            String rows = pairRows(chunk, params, false, true);
+            jdbcTemplate.query("INSERT INTO matches (user_low_id, user_high_id, matched_at) " +
+                "SELECT v.low, v.high, now() FROM (VALUES " + rows + ") AS v(low, high) " +
+                "ON CONFLICT (user_low_id, user_high_id) DO NOTHING RETURNING user_low_id, user_high_id",
+                params,
+                rs -> {
+                    created.add(new Pair(rs.getLong("user_low_id"), rs.getLong("user_high_id")));
+                });
+        }
+        return created;
+    }
+
+    // A dislike ends any match between the pair, whichever side it came from
+    private List<Pair> deleteMatches(List<Swipe> dislikes) {
+        List<Pair> removed = new ArrayList<>();
+        for (List<Swipe> chunk : chunks(dislikes)) {
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            String rows = pairRows(chunk, params, false, true);
+            jdbcTemplate.query("DELETE FROM matches WHERE (user_low_id, user_high_id) IN (" + rows + ") " +
+                "RETURNING user_low_id, user_high_id",
+                params,
+                rs -> {
+                    removed.add(new Pair(rs.getLong("user_low_id"), rs.getLong("user_high_id")));
+                });
+        }
+        return removed;
+    }
+
+    // Builds "(:a0, :b0), (:a1, :b1), ..." for the swipes' user pairs.
+    // reversed swaps liker/liked, ordered writes the pair as (low, high) like the matches table.
+    private String pairRows(List<Swipe> swipes, MapSqlParameterSource params, boolean reversed, boolean ordered) {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < swipes.size(); i++) {
+            Swipe swipe = swipes.get(i);
+            long first = reversed ? swipe.likedUserId() : swipe.likerId();
+            long second = reversed ? swipe.likerId() : swipe.likedUserId();
+            if (i > 0) {
+                rows.append(", ");
+            }
+            rows.append("(:a").append(i).append(", :b").append(i).append(")");
+            params.addValue("a" + i, ordered ? Math.min(first, second) : first);
+            params.addValue("b" + i, ordered ? Math.max(first, second) : second);
+        }
+        return rows.toString();
+    }
+
+    private static List<List<Swipe>> chunks(List<Swipe> swipes) {
+        List<List<Swipe>> chunks = new ArrayList<>();
+        for (int start = 0; start < swipes.size(); start += MAX_ROWS_PER_STATEMENT) {
+            chunks.add(swipes.subList(start, Math.min(swipes.size(), start + MAX_ROWS_PER_STATEMENT)));
+        }
+        return chunks;
+    }
+
+    private void notifyMatches(List<Pair> matches) {
+        Set<Long> ids = new HashSet<>();
+        for (Pair pair : matches) {
+            ids.add(pair.first());
+            ids.add(pair.second());
+        }
+        Map<Long, String> displayNames = displayNameCache.getDisplayNames(ids);
+
+        // Same payloads as LikeService.likeUser, delivered after commit through the outbox
+        List<MatchNotificationDispatcher.Notification> notifications = new ArrayList<>(matches.size() * 2);
+        for (Pair pair : matches) {
+            notifications.add(new MatchNotificationDispatcher.Notification(
+                pair.first(), pair.second(), displayNames.get(pair.first())));
+            notifications.add(new MatchNotificationDispatcher.Notification(
+                pair.second(), pair.first(), displayNames.get(pair.second())));
+        }
+        matchNotificationDispatcher.enqueue(notifications);
+    }
+}
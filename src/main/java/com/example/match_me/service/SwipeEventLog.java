@@ -0,0 +1,339 @@
+package com.example.match_me.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+// Append-only log of every swipe for analytics and offline ranking jobs.
+// user_likes only keeps the latest state per pair; swipe_events keeps each change.
+//
+// The table is range-partitioned by month on occurred_at (Hibernate cannot create partitioned
+// tables, so the DDL lives here). Events are handed to a queue after the swipe commits and
+// written in batches by the "swipe-event-writer" thread, so the swipe path never waits on it.
+// The log is best effort: if the queue is full events are dropped and counted.
+//
+// Closed months are exported once to likes.events.export-dir as gzipped fixed-width records
+// (see exportMonth), so reporting never has to touch the live partitions.
+@Component
+public class SwipeEventLog {
+
+    public enum EventType {
+        LIKE(1), DISLIKE(2), REMOVE(3);
+
+        private final short code;
+
+        EventType(int code) {
+            this.code = (short) code;
+        }
+
+        public short getCode() {
+            return code;
+        }
+    }
+
+    public record SwipeEvent(long likerId, long likedId, EventType type, Instant occurredAt) { }
+
+    // Export file header: magic "SWEV" + format version
+    private static final int EXPORT_MAGIC = 0x53574556;
+    private static final int EXPORT_VERSION = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long flushIntervalMs;
+    private final int partitionsAhead;
+    private final String exportDir;
+
+    private final BlockingQueue<SwipeEvent> queue;
+    private volatile boolean running = false;
+    private Thread writerThread;
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+
+    public SwipeEventLog(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${likes.events.enabled:true}") boolean enabled,
+                         @Value("${likes.events.queue-capacity:50000}") int queueCapacity,
+                         @Value("${likes.events.max-batch-size:1000}") int maxBatchSize,
+                         @Value("${likes.events.flush-interval-ms:200}") long flushIntervalMs,
+                         @Value("${likes.events.partitions-ahead:2}") int partitionsAhead,
+                         @Value("${likes.events.export-dir:exports/swipe-events}") String exportDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.partitionsAhead = partitionsAhead;
+        this.exportDir = exportDir;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("likes.events.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.writtenCounter = Counter.builder("likes.events.written").register(meterRegistry);
+        this.droppedCounter = Counter.builder("likes.events.dropped")
+            .description("Swipe events dropped because the event queue was full")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            createTable();
+            ensurePartitions();
+        } catch (RuntimeException e) {
+            System.err.println("ERROR creating swipe_events partitions: " + e.getMessage());
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "swipe-event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void record(long likerId, long likedId, EventType type) {
+        record(List.of(new SwipeEvent(likerId, likedId, type, Instant.now())));
+    }
+
+    // Queued after the surrounding transaction commits, rolled back swipes are never logged
+    public void record(List<SwipeEvent> events) {
+        if (!enabled || events.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(events);
+                }
+            });
+        } else {
+            offer(events);
+        }
+    }
+
+    private void offer(List<SwipeEvent> events) {
+        for (SwipeEvent event : events) {
+            if (!running || !queue.offer(event)) {
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<SwipeEvent> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                SwipeEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                droppedCounter.increment(batch.size());
+                System.err.println("ERROR writing " + batch.size() + " swipe events: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<SwipeEvent> batch) {
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO swipe_events (liker_id, liked_id, event_type, occurred_at) VALUES (?, ?, ?, ?)",
+            batch, batch.size(),
+            (ps, event) -> {
+                ps.setLong(1, event.likerId());
+                ps.setLong(2, event.likedId());
+                ps.setShort(3, event.type().getCode());
+                ps.setTimestamp(4, Timestamp.from(event.occurredAt()));
+            });
+        writtenCounter.increment(batch.size());
+    }
+
+    private void createTable() {
+        jdbcTemplate.execute(
+            "CREATE TABLE IF NOT EXISTS swipe_events (" +
+            "liker_id bigint NOT NULL, " +
+            "liked_id bigint NOT NULL, " +
+            "event_type smallint NOT NULL, " +
+            "occurred_at timestamptz NOT NULL" +
+            ") PARTITION BY RANGE (occurred_at)");
+        // Catches events outside the prepared months (clock skew, a missed maintenance run)
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS swipe_events_default PARTITION OF swipe_events DEFAULT");
+        // Events arrive in time order, so a BRIN index stays tiny and still prunes time ranges
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_swipe_events_occurred_at ON swipe_events USING brin (occurred_at)");
+    }
+
+    // Monthly partitions (UTC) for the current month and the next few
+    private void ensurePartitions() {
+        YearMonth month = YearMonth.now(ZoneOffset.UTC);
+        for (int i = 0; i <= partitionsAhead; i++) {
+            YearMonth partition = month.plusMonths(i);
+            if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NULL", Boolean.class, partitionName(partition)) == Boolean.TRUE) {
+                createPartition(partition);
+            }
+        }
+    }
+
+    // Postgres refuses to create a partition while the default partition holds rows in its range,
+    // so those rows are moved over: detach the default, create the partition, move the rows, reattach.
+    // DETACH locks swipe_events until commit, so concurrent inserts wait instead of failing.
+    private void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        String bounds = "FOR VALUES FROM ('" + month.atDay(1) + " 00:00:00+00') " +
+            "TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')";
+        transaction.executeWithoutResult(status -> {
+            Long stray = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM swipe_events_default WHERE occurred_at >= ? AND occurred_at < ?",
+                Long.class, monthStart(month), monthStart(month.plusMonths(1)));
+            if (stray == null || stray == 0) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF swipe_events " + bounds);
+                return;
+            }
+            System.err.println("WARNING: swipe_events_default holds " + stray + " events for " + month +
+                ", moving them into " + partition);
+            jdbcTemplate.execute("ALTER TABLE swipe_events DETACH PARTITION swipe_events_default");
+            jdbcTemplate.execute("CREATE TABLE " + partition + " PARTITION OF swipe_events " + bounds);
+            jdbcTemplate.update(
+                "WITH moved AS (" +
+                "DELETE FROM swipe_events_default WHERE occurred_at >= ? AND occurred_at < ? " +
+                "RETURNING liker_id, liked_id, event_type, occurred_at) " +
+                "INSERT INTO " + partition + " (liker_id, liked_id, event_type, occurred_at) " +
+                "SELECT liker_id, liked_id, event_type, occurred_at FROM moved",
+                monthStart(month), monthStart(month.plusMonths(1)));
+            jdbcTemplate.execute("ALTER TABLE swipe_events ATTACH PARTITION swipe_events_default DEFAULT");
+        });
+    }
+
+    // Events in the default partition fall outside every prepared month; they are still exported
+    // (by time range), but a growing default partition means maintenance is falling behind
+    private void checkDefaultPartition() {
+        Long stray = jdbcTemplate.queryForObject("SELECT count(*) FROM swipe_events_default", Long.class);
+        if (stray != null && stray > 0) {
+            System.err.println("WARNING: swipe_events_default holds " + stray +
+                " events outside the monthly partitions; they are moved when their month's partition is created");
+        }
+    }
+
+    // Daily: create upcoming partitions and export last month once it is closed
+    @Scheduled(cron = "${likes.events.maintenance-cron:0 30 3 * * *}", zone = "UTC")
+    public void maintain() {
+        if (!running) {
+            return;
+        }
+        try {
+            ensurePartitions();
+            checkDefaultPartition();
+            exportMonth(YearMonth.now(ZoneOffset.UTC).minusMonths(1));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERROR in swipe event maintenance: " + e.getMessage());
+        }
+    }
+
+    // Writes one closed month as <export-dir>/swipe-events-YYYY-MM.bin.gz, skipped if it already exists.
+    // Format (big-endian, gzipped): int magic, int version, then 25-byte records
+    // {long occurredAtEpochMillis, long likerId, long likedId, byte eventType} in time order.
+    public Path exportMonth(YearMonth month) throws IOException {
+        Path dir = Paths.get(exportDir);
+        Path target = dir.resolve("swipe-events-" + month + ".bin.gz");
+        if (Files.exists(target)) {
+            return target;
+        }
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+
+        long[] rows = { 0 };
+        try (OutputStream file = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(file), 1 << 16))) {
+            out.writeInt(EXPORT_MAGIC);
+            out.writeInt(EXPORT_VERSION);
+            // Reads the month by time range from the parent table: pruning limits it to the month's
+            // partition plus the default one, so events that landed in the default are exported too.
+            // Inside a transaction so the driver streams rows with the fetch size instead of buffering them all.
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                    var ps = con.prepareStatement(
+                        "SELECT occurred_at, liker_id, liked_id, event_type FROM swipe_events " +
+                        "WHERE occurred_at >= ? AND occurred_at < ? ORDER BY occurred_at");
+                    ps.setTimestamp(1, monthStart(month));
+                    ps.setTimestamp(2, monthStart(month.plusMonths(1)));
+                    ps.setFetchSize(10000);
+                    return ps;
+                },
+                rs -> {
+                    try {
+                        out.writeLong(rs.getTimestamp(1).getTime());
+                        out.writeLong(rs.getLong(2));
+                        out.writeLong(rs.getLong(3));
+                        out.writeByte(rs.getShort(4));
+                        rows[0]++;
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Failed writing swipe event export", e);
+                    }
+                }));
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Exported " + rows[0] + " swipe events for " + month + " to " + target);
+        return target;
+    }
+
+    private static Timestamp monthStart(YearMonth month) {
+        return Timestamp.from(month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("swipe_events_%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+}
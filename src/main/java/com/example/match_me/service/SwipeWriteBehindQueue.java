@@ -0,0 +1,310 @@
+package com.example.match_me.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.match_me.DTO.LikeRequest;
+import com.example.match_me.DTO.LikeResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Write-behind mode for swipes (likes.write-mode=write-behind).
+// Swipes are put on a bounded queue and a single writer thread group-commits them
+// through SwipeBatchWriter every few milliseconds.
+//
+// Durability (likes.write-behind.ack):
+//   enqueue - the request is acknowledged as soon as the swipe is queued. Fastest, but
+//             swipes still in the queue are lost if the process dies. Matches are only
+//             reported through the /topic/matches WebSocket notification.
+//   commit  - the request waits until its batch has committed and gets the real result
+//             (including isMatch). Still one transaction per batch instead of per swipe.
+//
+// Everything that writes user_likes in this mode (swipes, bulk swipes, removals) goes through
+// the queue, so a newer write for a pair can never commit before an older queued one. A full
+// queue therefore rejects the swipe (HTTP 503) instead of writing around the queue.
+//
+// A batch that fails (deadlock, serialization failure, lost connection) is retried with backoff;
+// if it keeps failing it is split in halves and each half is tried on its own, so one bad swipe
+// does not take the rest of the batch down with it. Only swipes that still fail alone are dropped.
+@Component
+public class SwipeWriteBehindQueue {
+
+    private static final String QUEUE_FULL_MESSAGE = "Too many swipes in progress, try again shortly";
+
+    private final SwipeBatchWriter swipeBatchWriter;
+
+    private final boolean enabled;
+    private final boolean ackOnCommit;
+    private final int queueCapacity;
+    private final long flushIntervalMs;
+    private final int maxBatchSize;
+    private final long ackTimeoutMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private final BlockingQueue<PendingSwipe> queue;
+    private volatile boolean running = false;
+    private Thread writerThread;
+
+    private final Counter queuedCounter;
+    private final Counter overflowCounter;
+    private final Counter failedCounter;
+    private final Counter retriedCounter;
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+
+    record PendingSwipe(SwipeBatchWriter.Swipe swipe, CompletableFuture<LikeResponse> result) { }
+
+    public SwipeWriteBehindQueue(SwipeBatchWriter swipeBatchWriter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${likes.write-mode:sync}") String writeMode,
+                                 @Value("${likes.write-behind.ack:enqueue}") String ack,
+                                 @Value("${likes.write-behind.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${likes.write-behind.flush-interval-ms:5}") long flushIntervalMs,
+                                 @Value("${likes.write-behind.max-batch-size:500}") int maxBatchSize,
+                                 @Value("${likes.write-behind.ack-timeout-ms:5000}") long ackTimeoutMs,
+                                 @Value("${likes.write-behind.max-attempts:3}") int maxAttempts,
+                                 @Value("${likes.write-behind.retry-backoff-ms:50}") long retryBackoffMs) {
+        this.swipeBatchWriter = swipeBatchWriter;
+        this.enabled = "write-behind".equalsIgnoreCase(writeMode);
+        this.ackOnCommit = "commit".equalsIgnoreCase(ack);
+        this.queueCapacity = queueCapacity;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBatchSize = maxBatchSize;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("likes.write-behind.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("likes.write-behind.queue.capacity", () -> this.queueCapacity).register(meterRegistry);
+        this.queuedCounter = Counter.builder("likes.write-behind.queued").register(meterRegistry);
+        this.overflowCounter = Counter.builder("likes.write-behind.overflow")
+            .description("Swipes rejected because the queue was full")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("likes.write-behind.failed")
+            .description("Queued swipes dropped after every retry failed")
+            .register(meterRegistry);
+        this.retriedCounter = Counter.builder("likes.write-behind.retried")
+            .description("Batch writes retried after a failure, including split halves")
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("likes.write-behind.batch.size").register(meterRegistry);
+        this.flushTimer = Timer.builder("likes.write-behind.flush").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "swipe-writer");
+        writerThread.start();
+        System.out.println("Swipe write-behind enabled (ack=" + (ackOnCommit ? "commit" : "enqueue")
+            + ", capacity=" + queueCapacity + ", interval=" + flushIntervalMs + "ms)");
+    }
+
+    // Stop accepting work and let the writer drain whatever is still queued
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // True for the response of a swipe that was not queued because the queue was full
+    public static boolean isRejected(LikeResponse response) {
+        return !response.isSuccess() && QUEUE_FULL_MESSAGE.equals(response.getMessage());
+    }
+
+    public LikeResponse submit(Long likerId, LikeRequest likeRequest) {
+        if (likerId.equals(likeRequest.getLikedUserId())) {
+            return new LikeResponse(false, "Cannot interact with yourself");
+        }
+        return await(enqueue(new SwipeBatchWriter.Swipe(likerId, likeRequest.getLikedUserId(), likeRequest.isLike())),
+            ackDeadline());
+    }
+
+    // Bulk swipes are queued in request order, one response per request
+    public List<LikeResponse> submitAll(Long likerId, List<LikeRequest> likeRequests) {
+        List<PendingSwipe> pendings = new ArrayList<>(likeRequests.size());
+        for (LikeRequest likeRequest : likeRequests) {
+            pendings.add(enqueue(new SwipeBatchWriter.Swipe(likerId, likeRequest.getLikedUserId(), likeRequest.isLike())));
+        }
+        // One ack timeout for the whole request, not one per swipe
+        long deadline = ackDeadline();
+        List<LikeResponse> responses = new ArrayList<>(pendings.size());
+        for (PendingSwipe pending : pendings) {
+            responses.add(await(pending, deadline));
+        }
+        return responses;
+    }
+
+    public LikeResponse submitRemoval(Long likerId, Long likedUserId) {
+        return await(enqueue(SwipeBatchWriter.Swipe.removal(likerId, likedUserId)), ackDeadline());
+    }
+
+    // null if the queue is full or shutting down
+    private PendingSwipe enqueue(SwipeBatchWriter.Swipe swipe) {
+        PendingSwipe pending = new PendingSwipe(swipe, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            overflowCounter.increment();
+            return null;
+        }
+        queuedCounter.increment();
+        return pending;
+    }
+
+    private long ackDeadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+    }
+
+    private LikeResponse await(PendingSwipe pending, long deadline) {
+        if (pending == null) {
+            return new LikeResponse(false, QUEUE_FULL_MESSAGE);
+        }
+        Long likedUserId = pending.swipe().likedUserId();
+        String queuedMessage = pending.swipe().remove() ? "Removal queued" : "Swipe queued";
+        if (!ackOnCommit) {
+            return new LikeResponse(true, queuedMessage, false, likedUserId);
+        }
+        try {
+            return pending.result().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The swipe is still queued and will be written, it just was not confirmed in time
+            return new LikeResponse(true, queuedMessage, false, likedUserId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new LikeResponse(false, "Interrupted while waiting for swipe to be saved");
+        } catch (ExecutionException e) {
+            return new LikeResponse(false, "Error processing interaction: " + e.getCause().getMessage());
+        }
+    }
+
+    private void runWriter() {
+        List<PendingSwipe> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSwipe first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Group-commit window: collect whatever else arrives within one interval
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingSwipe next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<PendingSwipe> batch) {
+        batchSizes.record(batch.size());
+        flushTimer.record(() -> {
+            Exception error = null;
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                if (attempt > 1) {
+                    retriedCounter.increment();
+                    if (!backoff(attempt - 1)) {
+                        break;
+                    }
+                }
+                error = tryApply(batch);
+                if (error == null) {
+                    return;
+                }
+                System.err.println("ERROR flushing " + batch.size() + " queued swipes (attempt " + attempt + "): "
+                    + error.getMessage());
+            }
+            applySplit(batch, error);
+        });
+    }
+
+    // The whole batch kept failing: try each half on its own, down to single swipes
+    private void applySplit(List<PendingSwipe> batch, Exception error) {
+        if (batch.size() == 1) {
+            PendingSwipe pending = batch.get(0);
+            failedCounter.increment();
+            System.err.println("Queued swipe " + pending.swipe() + " dropped: " + error.getMessage());
+            pending.result().complete(new LikeResponse(false, "Error processing interaction: " + error.getMessage()));
+            return;
+        }
+        int middle = batch.size() / 2;
+        for (List<PendingSwipe> half : List.of(batch.subList(0, middle), batch.subList(middle, batch.size()))) {
+            retriedCounter.increment();
+            Exception halfError = tryApply(half);
+            if (halfError != null) {
+                applySplit(half, halfError);
+            }
+        }
+    }
+
+    // Completes every swipe of the batch and returns null, or returns the error and completes nothing
+    private Exception tryApply(List<PendingSwipe> batch) {
+        List<SwipeBatchWriter.Swipe> swipes = new ArrayList<>(batch.size());
+        for (PendingSwipe pending : batch) {
+            swipes.add(pending.swipe());
+        }
+        List<LikeResponse> results;
+        try {
+            results = swipeBatchWriter.applySwipes(swipes);
+        } catch (Exception e) {
+            return e;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            LikeResponse result = results.get(i);
+            if (!result.isSuccess()) {
+                System.err.println("Queued swipe " + swipes.get(i) + " rejected: " + result.getMessage());
+            }
+            batch.get(i).result().complete(result);
+        }
+        return null;
+    }
+
+    // Exponential: retryBackoffMs, 2x, 4x, ...; false if interrupted
+    private boolean backoff(int retry) {
+        try {
+            Thread.sleep(retryBackoffMs << Math.min(retry - 1, 10));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
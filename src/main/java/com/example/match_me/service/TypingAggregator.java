@@ -0,0 +1,134 @@
+package com.example.match_me.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.match_me.DTO.TypingStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Keeps the typing state per (chat, user) and only broadcasts real transitions.
+// Clients send a frame on every keystroke burst; repeats of the current state are dropped,
+// and at most one update per throttle interval goes out for each (chat, user). A change that
+// arrives inside the interval is held and sent by the sweeper, so the latest state always wins.
+// A "typing" state that is not refreshed within the expiry time is turned off by the server,
+// so a closed tab does not leave the indicator on.
+@Component
+public class TypingAggregator {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long throttleMs;
+    private final long expiryMs;
+
+    private final Map<Key, State> states = new ConcurrentHashMap<>();
+
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+    private final Counter expiredCounter;
+
+    private record Key(Long chatId, Long userId) { }
+
+    private static class State {
+        boolean emitted;        // last state broadcast to the chat
+        boolean desired;        // last state reported by the client
+        long lastEmitAt;
+        long lastTypingFrameAt;
+        boolean removed;        // dropped by the sweeper, a new frame needs a new state
+    }
+
+    public TypingAggregator(SimpMessagingTemplate messagingTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${chat.typing.throttle-ms:1000}") long throttleMs,
+                            @Value("${chat.typing.expiry-ms:5000}") long expiryMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.throttleMs = throttleMs;
+        this.expiryMs = expiryMs;
+        this.sentCounter = Counter.builder("chat.typing.sent").register(meterRegistry);
+        this.droppedCounter = Counter.builder("chat.typing.dropped")
+            .description("Typing frames that did not change the broadcast state")
+            .register(meterRegistry);
+        this.expiredCounter = Counter.builder("chat.typing.expired").register(meterRegistry);
+        Gauge.builder("chat.typing.states", states, Map::size).register(meterRegistry);
+    }
+
+    public void onFrame(Long chatId, Long userId, boolean typing) {
+        onFrame(chatId, userId, typing, System.currentTimeMillis());
+    }
+
+    // The time is a parameter so tests can drive the throttle and expiry
+    void onFrame(Long chatId, Long userId, boolean typing, long now) {
+        Key key = new Key(chatId, userId);
+        boolean send;
+        while (true) {
+            State state = states.computeIfAbsent(key, k -> new State());
+            synchronized (state) {
+                if (state.removed) {
+                    continue;
+                }
+                state.desired = typing;
+                if (typing) {
+                    state.lastTypingFrameAt = now;
+                }
+                send = state.emitted != typing && now - state.lastEmitAt >= throttleMs;
+                if (send) {
+                    state.emitted = typing;
+                    state.lastEmitAt = now;
+                }
+                break;
+            }
+        }
+        if (send) {
+            emit(key, typing);
+        } else {
+            droppedCounter.increment();
+        }
+    }
+
+    // Sends held transitions once their throttle interval is over and expires silent typers
+    @Scheduled(fixedRateString = "${chat.typing.sweep-ms:500}")
+    public void sweep() {
+        sweep(System.currentTimeMillis());
+    }
+
+    void sweep(long now) {
+        for (Map.Entry<Key, State> entry : states.entrySet()) {
+            State state = entry.getValue();
+            Boolean send = null;
+            synchronized (state) {
+                if (state.desired && now - state.lastTypingFrameAt >= expiryMs) {
+                    state.desired = false;
+                    expiredCounter.increment();
+                }
+                if (state.emitted != state.desired && now - state.lastEmitAt >= throttleMs) {
+                    state.emitted = state.desired;
+                    state.lastEmitAt = now;
+                    send = state.emitted;
+                } else if (!state.emitted && !state.desired && now - state.lastEmitAt >= throttleMs) {
+                    // Idle and nothing pending, a new frame starts from a fresh state
+                    state.removed = true;
+                    states.remove(entry.getKey(), state);
+                }
+            }
+            if (send != null) {
+                emit(entry.getKey(), send);
+            }
+        }
+    }
+
+    private void emit(Key key, boolean typing) {
+        try {
+            messagingTemplate.convertAndSend("/topic/chat/" + key.chatId() + "/typing",
+                new TypingStatus(key.chatId(), key.userId(), typing));
+            sentCounter.increment();
+        } catch (Exception e) {
+            System.err.println("Error sending typing status for chat " + key.chatId() + ": " + e.getMessage());
+        }
+    }
+}
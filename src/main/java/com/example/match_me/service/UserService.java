@@ -36,12 +36,15 @@ public class UserService {
     private final UserRepository userRepository;
     private final InterestRepository interestRepository;
     private final UserLikeRepository userLikeRepository;
+    private final DisplayNameCache displayNameCache;
     
     @Autowired
-    public UserService(UserRepository userRepository, InterestRepository interestRepository, UserLikeRepository userLikeRepository) {
+    public UserService(UserRepository userRepository, InterestRepository interestRepository, UserLikeRepository userLikeRepository,
+                       DisplayNameCache displayNameCache) {
         this.userRepository = userRepository;
         this.interestRepository = interestRepository;
         this.userLikeRepository = userLikeRepository;
+        this.displayNameCache = displayNameCache;
     }
     //this will use authentication manager to get the current user from spring security context (which is set in the auth controller)
     public User getCurrentUser() {
@@ -178,6 +181,7 @@ public class UserService {
         if (request.getGender() != null) profile.setGender(request.getGender());
         if (request.getAge() != null) profile.setAge(request.getAge());
         userRepository.save(user);
+        displayNameCache.evict(userId);
     }
 
     @Transactional
@@ -0,0 +1,191 @@
+package com.example.match_me;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+import org.testcontainers.activemq.ActiveMQContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.example.match_me.entity.User;
+import com.example.match_me.repository.UserRepository;
+import com.example.match_me.security.JwtUtil;
+import com.example.match_me.service.MatchPairCache;
+
+// Two application nodes in chat.broker.mode=relay sharing one ActiveMQ broker and one database:
+// a client connected to node A must receive what node B sends, and node B's cache invalidations
+// must reach node A.
+@Testcontainers(disabledWithoutDocker = true)
+class BrokerRelayIntegrationTests {
+
+	private static final int STOMP_PORT = 61613;
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	@Container
+	static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	@Container
+	static final ActiveMQContainer broker = new ActiveMQContainer("apache/activemq-classic:5.18.3")
+			.withUser("guest")
+			.withPassword("guest");
+
+	private static ConfigurableApplicationContext nodeA;
+	private static ConfigurableApplicationContext nodeB;
+	private static WebSocketStompClient stompClient;
+
+	@BeforeAll
+	static void startNodes() {
+		nodeA = startNode();
+		nodeB = startNode();
+		stompClient = new WebSocketStompClient(
+				new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+		stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+	}
+
+	@AfterAll
+	static void stopNodes() {
+		if (stompClient != null) {
+			stompClient.stop();
+		}
+		if (nodeB != null) {
+			nodeB.close();
+		}
+		if (nodeA != null) {
+			nodeA.close();
+		}
+	}
+
+	private static ConfigurableApplicationContext startNode() {
+		return new SpringApplicationBuilder(MatchMeApplication.class)
+				.properties(
+						"server.port=0",
+						"spring.datasource.url=" + postgres.getJdbcUrl(),
+						"spring.datasource.username=" + postgres.getUsername(),
+						"spring.datasource.password=" + postgres.getPassword(),
+						"chat.broker.mode=relay",
+						"chat.broker.relay.host=" + broker.getHost(),
+						"chat.broker.relay.port=" + broker.getMappedPort(STOMP_PORT),
+						"likes.events.export-dir=target/relay-test-exports")
+				.run();
+	}
+
+	@Test
+	void topicMessageSentOnOneNodeReachesClientOnTheOther() throws Exception {
+		User user = anyUser();
+		StompSession session = connect(nodeA, user);
+		BlockingQueue<Map<String, Object>> received = subscribe(session, "/topic/chat/987654321");
+
+		Map<String, Object> message = sendUntilReceived(received,
+				() -> nodeB.getBean(SimpMessagingTemplate.class)
+						.convertAndSend("/topic/chat/987654321", Map.of("content", "hello from node B")));
+
+		assertEquals("hello from node B", message.get("content"));
+		session.disconnect();
+	}
+
+	@Test
+	void userDestinationResolvedOnTheNodeHoldingTheSession() throws Exception {
+		User user = anyUser();
+		StompSession session = connect(nodeA, user);
+		BlockingQueue<Map<String, Object>> received = subscribe(session, "/user/queue/read-receipts");
+
+		// Node B has no session for the user, so it broadcasts the unresolved destination to node A
+		Map<String, Object> message = sendUntilReceived(received,
+				() -> nodeB.getBean(SimpMessagingTemplate.class)
+						.convertAndSendToUser(user.getEmail(), "/queue/read-receipts", Map.of("messageId", 42)));
+
+		assertEquals(42, message.get("messageId"));
+		session.disconnect();
+	}
+
+	@Test
+	void matchInvalidationOnOneNodeDropsTheCachedAnswerOnTheOther() throws Exception {
+		MatchPairCache cacheA = nodeA.getBean(MatchPairCache.class);
+		MatchPairCache cacheB = nodeB.getBean(MatchPairCache.class);
+		assertFalse(cacheA.isMatched(900001, 900002, () -> false));
+
+		long deadline = System.nanoTime() + TIMEOUT.toNanos();
+		boolean reloaded = false;
+		while (!reloaded && System.nanoTime() < deadline) {
+			cacheB.invalidate(900001, 900002);
+			Thread.sleep(200);
+			// Only a dropped entry calls the loader again
+			reloaded = cacheA.isMatched(900001, 900002, () -> true);
+		}
+		assertTrue(reloaded, "node A still serves the cached answer after node B invalidated it");
+	}
+
+	private static User anyUser() {
+		return nodeA.getBean(UserRepository.class).findAll().stream()
+				.findFirst()
+				.orElseThrow(() -> new IllegalStateException("No users seeded"));
+	}
+
+	private static StompSession connect(ConfigurableApplicationContext node, User user) throws Exception {
+		int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+		StompHeaders connectHeaders = new StompHeaders();
+		connectHeaders.add("Authorization", "Bearer " + node.getBean(JwtUtil.class).generateToken(user.getEmail()));
+		return stompClient.connectAsync("http://localhost:" + port + "/ws", new WebSocketHttpHeaders(),
+				connectHeaders, new StompSessionHandlerAdapter() { })
+				.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+	}
+
+	private static BlockingQueue<Map<String, Object>> subscribe(StompSession session, String destination) {
+		BlockingQueue<Map<String, Object>> received = new LinkedBlockingQueue<>();
+		session.subscribe(destination, new StompFrameHandler() {
+			@Override
+			public Type getPayloadType(StompHeaders headers) {
+				return Map.class;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void handleFrame(StompHeaders headers, Object payload) {
+				received.add((Map<String, Object>) payload);
+			}
+		});
+		return received;
+	}
+
+	// The subscription and the relay's system connection are set up asynchronously, so resend
+	// until the first message arrives
+	private static Map<String, Object> sendUntilReceived(BlockingQueue<Map<String, Object>> received, Runnable send)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TIMEOUT.toNanos();
+		while (System.nanoTime() < deadline) {
+			send.run();
+			Map<String, Object> message = received.poll(500, TimeUnit.MILLISECONDS);
+			if (message != null) {
+				return message;
+			}
+		}
+		throw new AssertionError("Nothing received within " + TIMEOUT);
+	}
+}
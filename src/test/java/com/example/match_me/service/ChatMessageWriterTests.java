@@ -0,0 +1,162 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.match_me.DTO.ChatMessageAck;
+import com.example.match_me.DTO.UsersChatDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ChatMessageWriterTests {
+
+	private static final long CHAT = 10L;
+
+	// In-memory users_chat: (sender id, client message id) -> message id
+	private final Map<List<Object>, Long> stored = new HashMap<>();
+	private final List<Map.Entry<String, ChatMessageAck>> acks = new ArrayList<>();
+	private int inserts;
+	private boolean failing;
+
+	private RecentChatCache recentChatCache;
+	private ChatSummaryService chatSummaryService;
+	private ChatMessageWriter writer;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		doAnswer(invocation -> {
+			inserts++;
+			if (failing) {
+				throw new IllegalStateException("connection reset");
+			}
+			MapSqlParameterSource params = invocation.getArgument(1);
+			RowCallbackHandler handler = invocation.getArgument(2);
+			for (int i = 0; params.hasValue("k" + i); i++) {
+				Long senderId = (Long) params.getValue("s" + i);
+				String clientId = (String) params.getValue("k" + i);
+				List<Object> key = List.of(senderId, clientId);
+				boolean inserted = !stored.containsKey(key);
+				if (inserted) {
+					stored.put(key, 100L + stored.size());
+				}
+				ResultSet rs = mock(ResultSet.class);
+				when(rs.getLong("id")).thenReturn(stored.get(key));
+				when(rs.getLong("sender_id")).thenReturn(senderId);
+				when(rs.getString("client_message_id")).thenReturn(clientId);
+				when(rs.getBoolean("inserted")).thenReturn(inserted);
+				handler.processRow(rs);
+			}
+			return null;
+		}).when(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+			String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+			acks.add(Map.entry(destination, (ChatMessageAck) message.getPayload()));
+			return true;
+		});
+		recentChatCache = mock(RecentChatCache.class);
+		chatSummaryService = mock(ChatSummaryService.class);
+		DisplayNameCache displayNameCache = mock(DisplayNameCache.class);
+		when(displayNameCache.getDisplayName(1L)).thenReturn("User 1");
+		writer = new ChatMessageWriter(jdbcTemplate, mock(PlatformTransactionManager.class), template,
+				recentChatCache, displayNameCache, chatSummaryService, new SimpleMeterRegistry(),
+				"group-commit", 100, 10, 200);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void batchIsStoredWithOneInsertAndEveryMessageIsAcked() {
+		writer.flush(List.of(message(1L, "a"), message(2L, "b")));
+
+		assertEquals(1, inserts);
+		assertEquals(List.of("saved", "saved"), statuses());
+		assertEquals("/user/user1@example.com/queue/chat-acks", acks.get(0).getKey());
+		assertEquals(stored.get(List.of(1L, "a")), acks.get(0).getValue().getMessageId());
+		ArgumentCaptor<List<UsersChatDTO>> summaries = ArgumentCaptor.forClass(List.class);
+		verify(chatSummaryService).recordMessages(summaries.capture());
+		assertEquals(2, summaries.getValue().size());
+		assertEquals("User 1", summaries.getValue().get(0).getSenderDisplayName());
+		verify(recentChatCache, times(2)).append(any(UsersChatDTO.class));
+	}
+
+	@Test
+	void resendWithinABatchIsWrittenOnceAndAckedTwice() {
+		writer.flush(List.of(message(1L, "a"), message(1L, "a")));
+
+		assertEquals(1, stored.size());
+		assertEquals(2, acks.size());
+		assertEquals(acks.get(0).getValue().getMessageId(), acks.get(1).getValue().getMessageId());
+		verify(recentChatCache).append(any(UsersChatDTO.class));
+	}
+
+	// A client resending after a lost ack gets the id of the stored row; the message is not
+	// appended or counted in the inbox a second time
+	@Test
+	void resendOfAStoredMessageIsAckedWithTheExistingId() {
+		stored.put(List.of(1L, "a"), 42L);
+
+		writer.flush(List.of(message(1L, "a")));
+
+		assertEquals(42L, acks.get(0).getValue().getMessageId());
+		assertEquals("saved", acks.get(0).getValue().getStatus());
+		verify(chatSummaryService).recordMessages(List.of());
+		verify(recentChatCache, never()).append(any(UsersChatDTO.class));
+	}
+
+	@Test
+	void failedFlushAcksEveryMessageAsFailed() {
+		failing = true;
+
+		writer.flush(List.of(message(1L, "a"), message(2L, "b")));
+
+		assertEquals(List.of("failed", "failed"), statuses());
+		assertNull(acks.get(0).getValue().getMessageId());
+		verify(recentChatCache, never()).append(any(UsersChatDTO.class));
+	}
+
+	@Test
+	void submitIsRefusedUntilTheWriterRuns() {
+		assertFalse(writer.submit(message(1L, "a")));
+	}
+
+	private List<String> statuses() {
+		List<String> statuses = new ArrayList<>();
+		for (Map.Entry<String, ChatMessageAck> ack : acks) {
+			statuses.add(ack.getValue().getStatus());
+		}
+		return statuses;
+	}
+
+	private static ChatMessageWriter.PendingMessage message(long senderId, String clientMessageId) {
+		return new ChatMessageWriter.PendingMessage(clientMessageId, CHAT, senderId, "user" + senderId + "@example.com",
+				"message " + clientMessageId, LocalDateTime.of(2024, 5, 1, 12, 0));
+	}
+}
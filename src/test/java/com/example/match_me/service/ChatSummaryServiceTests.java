@@ -0,0 +1,135 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.example.match_me.DTO.UsersChatDTO;
+import com.example.match_me.repository.ChatSummaryRepository;
+
+class ChatSummaryServiceTests {
+
+	private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+	private NamedParameterJdbcTemplate jdbcTemplate;
+	private ChatSummaryService service;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		service = new ChatSummaryService(mock(ChatSummaryRepository.class), jdbcTemplate, mock(OneTimeBackfills.class));
+	}
+
+	@Test
+	void emptyBatchWritesNothing() {
+		service.recordMessages(List.of());
+
+		verify(jdbcTemplate, never()).update(anyString(), any(SqlParameterSource.class));
+	}
+
+	@Test
+	void singleMessageIsOneRow() {
+		MapSqlParameterSource params = record(List.of(message(5L, 100L, 1L, "hi", 0)));
+
+		assertRows(params, 1);
+		assertEquals(100L, params.getValue("c0"));
+		assertEquals(5L, params.getValue("l0"));
+		assertEquals("hi", params.getValue("sn0"));
+		assertEquals(Timestamp.valueOf(T0), params.getValue("t0"));
+		assertEquals(1L, params.getValue("ls0"));
+		assertEquals(1, params.getValue("n0"));
+		assertEquals(1L, params.getValue("sa0"));
+		assertEquals(1, params.getValue("na0"));
+		// A single sender fills the second slot with itself and a zero count
+		assertEquals(1L, params.getValue("sb0"));
+		assertEquals(0, params.getValue("nb0"));
+	}
+
+	@Test
+	void messagesOfOneChatFoldIntoOneRowWithPerSenderCounts() {
+		MapSqlParameterSource params = record(List.of(
+				message(5L, 100L, 1L, "a", 0),
+				message(6L, 100L, 2L, "b", 1),
+				message(7L, 100L, 1L, "c", 2)));
+
+		assertRows(params, 1);
+		assertEquals(7L, params.getValue("l0"));
+		assertEquals("c", params.getValue("sn0"));
+		assertEquals(1L, params.getValue("ls0"));
+		assertEquals(3, params.getValue("n0"));
+		assertEquals(1L, params.getValue("sa0"));
+		assertEquals(2, params.getValue("na0"));
+		assertEquals(2L, params.getValue("sb0"));
+		assertEquals(1, params.getValue("nb0"));
+	}
+
+	@Test
+	void newestMessageWinsWhateverTheBatchOrder() {
+		MapSqlParameterSource params = record(List.of(
+				message(9L, 100L, 2L, "newest", 5),
+				message(8L, 100L, 1L, "older", 4)));
+
+		assertEquals(9L, params.getValue("l0"));
+		assertEquals("newest", params.getValue("sn0"));
+		assertEquals(2L, params.getValue("ls0"));
+		assertEquals(Timestamp.valueOf(T0.plusSeconds(5)), params.getValue("t0"));
+	}
+
+	@Test
+	void eachChatGetsItsOwnRow() {
+		MapSqlParameterSource params = record(List.of(
+				message(5L, 100L, 1L, "a", 0),
+				message(6L, 200L, 3L, "b", 1),
+				message(7L, 100L, 2L, "c", 2)));
+
+		assertRows(params, 2);
+		assertEquals(100L, params.getValue("c0"));
+		assertEquals(2, params.getValue("n0"));
+		assertEquals(7L, params.getValue("l0"));
+		assertEquals(200L, params.getValue("c1"));
+		assertEquals(1, params.getValue("n1"));
+		assertEquals(3L, params.getValue("ls1"));
+	}
+
+	@Test
+	void longMessageIsCutToTheSnippetLength() {
+		MapSqlParameterSource params = record(List.of(message(5L, 100L, 1L, "x".repeat(250), 0)));
+
+		assertEquals("x".repeat(100), params.getValue("sn0"));
+	}
+
+	private MapSqlParameterSource record(List<UsersChatDTO> messages) {
+		service.recordMessages(messages);
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+		verify(jdbcTemplate).update(sql.capture(), params.capture());
+		assertTrue(sql.getValue().startsWith("INSERT INTO chat_summaries"));
+		return (MapSqlParameterSource) params.getValue();
+	}
+
+	private static void assertRows(MapSqlParameterSource params, int rows) {
+		for (int i = 0; i < rows; i++) {
+			assertTrue(params.hasValue("c" + i), "missing row " + i);
+		}
+		assertTrue(!params.hasValue("c" + rows), "unexpected row " + rows);
+	}
+
+	private static UsersChatDTO message(Long id, Long chatId, Long senderId, String content, int secondsAfterT0) {
+		return new UsersChatDTO(id, chatId, senderId, "User " + senderId, content, T0.plusSeconds(secondsAfterT0));
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InteractionBloomFilterTests {
+
+	private static final int EXPECTED_INSERTIONS = 10_000;
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+
+	private ClusterCacheEvents clusterCacheEvents;
+	private InteractionBloomFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		clusterCacheEvents = mock(ClusterCacheEvents.class);
+		// The mocked table is empty, so the load only marks the filter ready
+		filter = new InteractionBloomFilter(mock(JdbcTemplate.class), clusterCacheEvents, new SimpleMeterRegistry(),
+				EXPECTED_INSERTIONS, FALSE_POSITIVE_RATE);
+	}
+
+	@Test
+	void everyPairIsMaybePresentUntilLoaded() {
+		assertFalse(filter.isReady());
+		assertTrue(filter.mightContain(1, 2));
+	}
+
+	@Test
+	void addedPairsAreNeverReportedAbsent() {
+		filter.loadExistingInteractions();
+		for (long liker = 1; liker <= 100; liker++) {
+			for (long liked = 1; liked <= 100; liked++) {
+				filter.add(liker, liked);
+			}
+		}
+
+		for (long liker = 1; liker <= 100; liker++) {
+			for (long liked = 1; liked <= 100; liked++) {
+				assertTrue(filter.mightContain(liker, liked), liker + " -> " + liked);
+			}
+		}
+	}
+
+	@Test
+	void pairIsDirectional() {
+		filter.loadExistingInteractions();
+		filter.add(1, 2);
+
+		assertTrue(filter.mightContain(1, 2));
+		assertFalse(filter.mightContain(2, 1));
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheConfiguredRate() {
+		filter.loadExistingInteractions();
+		for (long i = 0; i < EXPECTED_INSERTIONS; i++) {
+			filter.add(i, i + 1_000_000);
+		}
+
+		int probes = 100_000;
+		int positives = 0;
+		for (long i = 0; i < probes; i++) {
+			if (filter.mightContain(i + 5_000_000, i)) {
+				positives++;
+			}
+		}
+		double observed = (double) positives / probes;
+		assertTrue(observed < 2 * FALSE_POSITIVE_RATE, "false positive rate " + observed);
+		assertTrue(filter.getExpectedFalsePositiveRate() < 2 * FALSE_POSITIVE_RATE);
+	}
+
+	@Test
+	void addIsPublishedToTheOtherNodes() {
+		filter.add(1, 2);
+
+		verify(clusterCacheEvents).publish(ClusterCacheEvents.Type.INTERACTION, 1, 2);
+	}
+
+	@Test
+	void pairAddedOnAnotherNodeIsPresent() {
+		filter.loadExistingInteractions();
+		filter.onInvalidation(new ClusterCacheEvents.Invalidation(ClusterCacheEvents.Type.INTERACTION, 3, 4));
+
+		assertTrue(filter.mightContain(3, 4));
+	}
+
+	@Test
+	void observedFalsePositiveRateCountsUnconfirmedPositives() {
+		filter.loadExistingInteractions();
+		filter.add(1, 2);
+		filter.mightContain(1, 2);
+		filter.mightContain(1, 2);
+		filter.recordFalsePositive();
+
+		assertEquals(0.5, filter.getObservedFalsePositiveRate());
+	}
+}
@@ -0,0 +1,191 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.match_me.DTO.LikeStatsDTO;
+import com.example.match_me.entity.UserLikeStats;
+import com.example.match_me.repository.UserLikeStatsRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LikeStatsServiceTests {
+
+	// Rows returned by the snapshot query: user id, actual counts, stored counts (null = no row)
+	private final List<Object[]> snapshot = new ArrayList<>();
+
+	private NamedParameterJdbcTemplate jdbcTemplate;
+	private UserLikeStatsRepository repository;
+	private TaskScheduler taskScheduler;
+	private SimpleMeterRegistry meterRegistry;
+	private LikeStatsService service;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		repository = mock(UserLikeStatsRepository.class);
+		taskScheduler = mock(TaskScheduler.class);
+		meterRegistry = new SimpleMeterRegistry();
+		doAnswer(invocation -> {
+			RowCallbackHandler handler = invocation.getArgument(2);
+			for (Object[] row : snapshot) {
+				handler.processRow(snapshotRow((Long) row[0], (long[]) row[1], (long[]) row[2]));
+			}
+			return null;
+		}).when(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+		service = new LikeStatsService(meterRegistry, mock(PlatformTransactionManager.class), taskScheduler, 100, 60_000);
+		ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(service, "userLikeStatsRepository", repository);
+	}
+
+	@Test
+	void deltasAreUpsertedInUserIdOrder() {
+		service.apply(new LikeStatsService.Deltas()
+				.interaction(5L, 2L, null, true)
+				.match(5L, 2L, 1));
+
+		ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+		verify(jdbcTemplate).update(anyString(), params.capture());
+		MapSqlParameterSource values = (MapSqlParameterSource) params.getValue();
+		assertEquals(2L, values.getValue("u0"));
+		assertEquals(1L, values.getValue("lr0"));
+		assertEquals(1L, values.getValue("m0"));
+		assertEquals(5L, values.getValue("u1"));
+		assertEquals(1L, values.getValue("lg1"));
+		assertEquals(0L, values.getValue("lr1"));
+	}
+
+	@Test
+	void emptyDeltasWriteNothing() {
+		service.apply(new LikeStatsService.Deltas().interaction(1L, 2L, true, true));
+
+		verify(jdbcTemplate, never()).update(anyString(), any(SqlParameterSource.class));
+	}
+
+	@Test
+	void chunkInSyncWritesNothing() {
+		snapshot.add(new Object[] { 1L, new long[] { 3, 1, 2, 1 }, new long[] { 3, 1, 2, 1 } });
+
+		assertEquals(List.of(), service.reconcileChunk(0, 1));
+
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), any(SqlParameterSource[].class));
+	}
+
+	@Test
+	void driftIsRepairedWithACompareAndSetOnTheSnapshotValues() {
+		snapshot.add(new Object[] { 1L, new long[] { 3, 1, 2, 1 }, new long[] { 3, 1, 2, 1 } });
+		snapshot.add(new Object[] { 2L, new long[] { 4, 0, 1, 0 }, new long[] { 5, 0, 1, 0 } });
+		when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+				.thenAnswer(invocation -> new int[((SqlParameterSource[]) invocation.getArgument(1)).length]);
+		when(jdbcTemplate.batchUpdate(startsWith("UPDATE"), any(SqlParameterSource[].class))).thenReturn(new int[] { 1 });
+
+		assertEquals(List.of(2L), service.reconcileChunk(0, 2));
+
+		ArgumentCaptor<SqlParameterSource[]> repairs = ArgumentCaptor.forClass(SqlParameterSource[].class);
+		verify(jdbcTemplate).batchUpdate(startsWith("UPDATE"), repairs.capture());
+		assertEquals(1, repairs.getValue().length);
+		SqlParameterSource repair = repairs.getValue()[0];
+		assertEquals(2L, repair.getValue("userId"));
+		assertEquals(4L, repair.getValue("likesGiven"));
+		assertEquals(5L, repair.getValue("storedLikesGiven"));
+	}
+
+	// A swipe changed the row after the snapshot: the compare-and-set misses and the row is left
+	// for the next run instead of being overwritten with a stale count
+	@Test
+	void rowChangedSinceTheSnapshotIsNotOverwritten() {
+		snapshot.add(new Object[] { 2L, new long[] { 4, 0, 1, 0 }, new long[] { 5, 0, 1, 0 } });
+		when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+				.thenAnswer(invocation -> new int[((SqlParameterSource[]) invocation.getArgument(1)).length]);
+
+		assertEquals(List.of(), service.reconcileChunk(0, 2));
+	}
+
+	@Test
+	void missingRowIsCreatedWithTheActualCounts() {
+		snapshot.add(new Object[] { 3L, new long[] { 1, 2, 0, 0 }, null });
+		when(jdbcTemplate.batchUpdate(anyString(), any(SqlParameterSource[].class)))
+				.thenAnswer(invocation -> new int[((SqlParameterSource[]) invocation.getArgument(1)).length]);
+		when(jdbcTemplate.batchUpdate(startsWith("INSERT"), any(SqlParameterSource[].class))).thenReturn(new int[] { 1 });
+
+		assertEquals(List.of(3L), service.reconcileChunk(0, 3));
+
+		ArgumentCaptor<SqlParameterSource[]> creates = ArgumentCaptor.forClass(SqlParameterSource[].class);
+		verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), creates.capture());
+		assertEquals(2L, creates.getValue()[0].getValue("dislikesGiven"));
+	}
+
+	@Test
+	void countingTakesNoLocks() {
+		snapshot.add(new Object[] { 1L, new long[] { 0, 0, 0, 0 }, new long[] { 0, 0, 0, 0 } });
+		service.reconcileChunk(0, 1);
+
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		verify(jdbcTemplate).query(sql.capture(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+		assertFalse(sql.getValue().toUpperCase().contains("FOR UPDATE"));
+		assertFalse(sql.getValue().toUpperCase().contains("INSERT"));
+	}
+
+	@Test
+	void statsAreCachedUntilTheUserSwipes() {
+		UserLikeStats stats = mock(UserLikeStats.class);
+		when(stats.getLikesGiven()).thenReturn(7L);
+		when(repository.findById(1L)).thenReturn(Optional.of(stats));
+
+		LikeStatsDTO first = service.getStats(1L);
+		service.getStats(1L);
+		verify(repository, times(1)).findById(1L);
+		assertEquals(7L, first.getLikesGiven());
+
+		service.apply(new LikeStatsService.Deltas().interaction(1L, 2L, null, true));
+		service.getStats(1L);
+		verify(repository, times(2)).findById(1L);
+	}
+
+	@Test
+	void startupBackfillRunsOnTheScheduler() {
+		service.backfillStats();
+
+		verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+		verify(repository, never()).count();
+	}
+
+	private static ResultSet snapshotRow(long userId, long[] actual, long[] stored) throws Exception {
+		String[] columns = { "likes_given", "dislikes_given", "likes_received", "matches" };
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.getLong("user_id")).thenReturn(userId);
+		when(rs.getBoolean("has_row")).thenReturn(stored != null);
+		for (int i = 0; i < columns.length; i++) {
+			when(rs.getLong(columns[i])).thenReturn(actual[i]);
+			when(rs.getLong("stored_" + columns[i])).thenReturn(stored != null ? stored[i] : 0);
+		}
+		return rs;
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import com.example.match_me.repository.BackfillMarkerRepository;
+
+class OneTimeBackfillsTests {
+
+	private BackfillMarkerRepository markers;
+	private PlatformTransactionManager transactionManager;
+	private TransactionStatus status;
+	private OneTimeBackfills backfills;
+
+	@BeforeEach
+	void setUp() {
+		markers = mock(BackfillMarkerRepository.class);
+		transactionManager = mock(PlatformTransactionManager.class);
+		status = mock(TransactionStatus.class);
+		when(transactionManager.getTransaction(any())).thenReturn(status);
+		backfills = new OneTimeBackfills(markers, transactionManager);
+	}
+
+	@Test
+	void backfillRunsAndIsMarkedDoneInItsTransaction() {
+		assertEquals(3, backfills.runOnce("x", () -> 3));
+
+		verify(markers).lock("x");
+		verify(markers).markDone("x");
+		verify(transactionManager).commit(status);
+	}
+
+	@Test
+	void completedBackfillDoesNotRunAgain() {
+		when(markers.existsById("x")).thenReturn(true);
+
+		assertNull(backfills.runOnce("x", () -> {
+			throw new AssertionError("ran twice");
+		}));
+		verify(transactionManager, never()).getTransaction(any());
+	}
+
+	@Test
+	void backfillFinishedByAnotherNodeWhileWaitingForTheLockIsSkipped() {
+		when(markers.existsById("x")).thenReturn(false, true);
+
+		assertNull(backfills.runOnce("x", () -> {
+			throw new AssertionError("ran twice");
+		}));
+		verify(markers, never()).markDone("x");
+	}
+
+	// Caught outside the transaction: rolled back and not marked, so the next start retries it
+	@Test
+	void failedBackfillRollsBackAndIsNotMarked() {
+		assertNull(backfills.runOnce("x", () -> {
+			throw new IllegalStateException("statement failed");
+		}));
+
+		verify(transactionManager).rollback(status);
+		verify(transactionManager, never()).commit(status);
+		verify(markers, never()).markDone("x");
+	}
+}
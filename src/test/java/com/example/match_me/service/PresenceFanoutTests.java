@@ -0,0 +1,98 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PresenceFanoutTests {
+
+	// recipient email -> presence payload, in send order
+	private final List<Map.Entry<String, Map<?, ?>>> sent = new ArrayList<>();
+	private PresenceFanout fanout;
+
+	@BeforeEach
+	void setUp() {
+		PresenceService presenceService = mock(PresenceService.class);
+		MatchService matchService = mock(MatchService.class);
+		when(matchService.getPartnerIds(1L)).thenReturn(List.of(2L, 3L));
+		// Partner 3 is offline
+		when(presenceService.getEmail(2L)).thenReturn("b@example.com");
+
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+			String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+			sent.add(Map.entry(destination, (Map<?, ?>) message.getPayload()));
+			return true;
+		});
+		fanout = new PresenceFanout(presenceService, matchService, template, new SimpleMeterRegistry());
+	}
+
+	@Test
+	void changeIsSentToOnlinePartnersOnly() {
+		fanout.publish(1L, true);
+		fanout.flush();
+
+		assertEquals(1, sent.size());
+		assertEquals("/user/b@example.com/queue/presence", sent.get(0).getKey());
+		assertEquals("1", sent.get(0).getValue().get("user"));
+		assertEquals(true, sent.get(0).getValue().get("online"));
+	}
+
+	@Test
+	void latestStateInAWindowWins() {
+		fanout.publish(1L, true);
+		fanout.flush();
+		sent.clear();
+
+		fanout.publish(1L, false);
+		fanout.publish(1L, true);
+		fanout.publish(1L, false);
+		fanout.flush();
+
+		assertEquals(1, sent.size());
+		assertEquals(false, sent.get(0).getValue().get("online"));
+	}
+
+	@Test
+	void flapBackToThePublishedStateSendsNothing() {
+		fanout.publish(1L, true);
+		fanout.flush();
+		sent.clear();
+
+		fanout.publish(1L, false);
+		fanout.publish(1L, true);
+		fanout.flush();
+
+		assertEquals(List.of(), sent);
+	}
+
+	@Test
+	void offlineFlapForUserNeverPublishedOnlineSendsNothing() {
+		fanout.publish(1L, true);
+		fanout.publish(1L, false);
+		fanout.flush();
+
+		assertEquals(List.of(), sent);
+	}
+
+	@Test
+	void emptyWindowSendsNothing() {
+		fanout.publish(1L, true);
+		fanout.flush();
+		sent.clear();
+
+		fanout.flush();
+
+		assertEquals(List.of(), sent);
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+
+import com.example.match_me.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PresenceServiceTests {
+
+	private static final long STALE_MS = 3000;
+	private static final long TICK_MS = 1000;
+
+	private PresenceService presence;
+	private long t0;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		presence = new PresenceService(new SimpleMeterRegistry(), mock(ObjectProvider.class), mock(UserRepository.class),
+				"simple", STALE_MS, TICK_MS, 100);
+		// The wheel starts at the current time; line it up with a tick boundary after that
+		t0 = (System.currentTimeMillis() / TICK_MS + 1) * TICK_MS;
+		presence.expireStale(t0);
+	}
+
+	@Test
+	void firstHeartbeatComesOnline() {
+		assertTrue(presence.heartbeat(1L, "a@example.com", "s1", t0));
+		assertFalse(presence.heartbeat(1L, "a@example.com", "s1", t0 + 100));
+		assertTrue(presence.isOnline(1L));
+		assertEquals("a@example.com", presence.getEmail(1L));
+	}
+
+	@Test
+	void silentUserExpiresWithinOneTickOfTheThreshold() {
+		presence.heartbeat(1L, "a@example.com", "s1", t0);
+
+		assertEquals(List.of(), presence.expireStale(t0 + STALE_MS - 1));
+		assertEquals(List.of(1L), presence.expireStale(t0 + STALE_MS + TICK_MS));
+		assertFalse(presence.isOnline(1L));
+		assertNull(presence.get(1L));
+	}
+
+	@Test
+	void heartbeatPushesExpiryBack() {
+		presence.heartbeat(1L, "a@example.com", "s1", t0);
+		presence.heartbeat(1L, "a@example.com", "s1", t0 + 2500);
+
+		assertEquals(List.of(), presence.expireStale(t0 + STALE_MS + TICK_MS));
+		assertEquals(List.of(1L), presence.expireStale(t0 + 2500 + STALE_MS + TICK_MS));
+	}
+
+	@Test
+	void steadyHeartbeatsNeverExpireAcrossManyWheelTurns() {
+		for (long t = t0; t < t0 + 60_000; t += TICK_MS) {
+			presence.heartbeat(1L, "a@example.com", "s1", t);
+			assertEquals(List.of(), presence.expireStale(t), "expired at " + (t - t0));
+		}
+	}
+
+	@Test
+	void onlyStaleUsersExpire() {
+		presence.heartbeat(1L, "a@example.com", "s1", t0);
+		presence.heartbeat(2L, "b@example.com", "s2", t0 + 2000);
+
+		assertEquals(List.of(1L), presence.expireStale(t0 + STALE_MS + TICK_MS));
+		assertTrue(presence.isOnline(2L));
+	}
+
+	@Test
+	void disconnectOfLastSessionGoesOffline() {
+		presence.heartbeat(1L, "a@example.com", "s1", t0);
+		presence.heartbeat(1L, "a@example.com", "s2", t0);
+
+		assertFalse(presence.disconnect(1L, "s1"));
+		assertTrue(presence.isOnline(1L));
+		assertTrue(presence.disconnect(1L, "s2"));
+		assertFalse(presence.isOnline(1L));
+		// Already gone, the wheel entry is ignored
+		assertEquals(List.of(), presence.expireStale(t0 + STALE_MS + TICK_MS));
+	}
+
+	// The tick stalled for longer than a wheel turn; a user who sent a heartbeat meanwhile is filed
+	// in a slot that one of the missed ticks shares, and must still expire later
+	@Test
+	void userFiledDuringAStallStillExpires() {
+		long stallEnd = t0 + 3 * (STALE_MS / TICK_MS + 2) * TICK_MS;
+		presence.heartbeat(1L, "a@example.com", "s1", stallEnd - 500);
+
+		assertEquals(List.of(), presence.expireStale(stallEnd));
+		assertTrue(presence.isOnline(1L));
+		assertEquals(List.of(1L), presence.expireStale(stallEnd + STALE_MS + TICK_MS));
+	}
+}
@@ -0,0 +1,159 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.TaskScheduler;
+
+import com.example.match_me.DTO.ReadReceipt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReadReceiptServiceTests {
+
+	private static final int MAX_PENDING = 3;
+
+	// Every UPDATE statement with its parameters, in call order
+	private final List<Map.Entry<String, MapSqlParameterSource>> writes = new ArrayList<>();
+	private final List<Map.Entry<String, ReadReceipt>> pushed = new ArrayList<>();
+	private int failuresLeft;
+
+	private TaskScheduler taskScheduler;
+	private ReadReceiptService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		// Every watermark moves forward; the partner of user u is user u + 1
+		doAnswer(invocation -> {
+			MapSqlParameterSource params = invocation.getArgument(1);
+			writes.add(Map.entry(invocation.getArgument(0), params));
+			if (failuresLeft > 0) {
+				failuresLeft--;
+				throw new IllegalStateException("connection reset");
+			}
+			RowCallbackHandler handler = invocation.getArgument(2);
+			for (int i = 0; params.hasValue("u" + i); i++) {
+				ResultSet rs = mock(ResultSet.class);
+				when(rs.getLong("user_id")).thenReturn((Long) params.getValue("u" + i));
+				when(rs.getLong("other_user_id")).thenReturn((Long) params.getValue("u" + i) + 1);
+				when(rs.getLong("chat_id")).thenReturn((Long) params.getValue("c" + i));
+				when(rs.getLong("read_message_id")).thenReturn((Long) params.getValue("m" + i));
+				handler.processRow(rs);
+			}
+			return null;
+		}).when(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+		PresenceService presenceService = mock(PresenceService.class);
+		when(presenceService.getEmail(2L)).thenReturn("b@example.com");
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+			String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+			pushed.add(Map.entry(destination, (ReadReceipt) message.getPayload()));
+			return true;
+		});
+		taskScheduler = mock(TaskScheduler.class);
+		service = new ReadReceiptService(jdbcTemplate, template, presenceService, taskScheduler,
+				new SimpleMeterRegistry(), MAX_PENDING);
+	}
+
+	@Test
+	void receiptsForAChatCoalesceToTheHighestId() {
+		service.submit(1L, 10L, 5L);
+		service.submit(1L, 10L, 8L);
+		service.submit(1L, 10L, 6L);
+		service.flush();
+
+		assertEquals(1, writes.size());
+		assertEquals(8L, writes.get(0).getValue().getValue("m0"));
+		assertFalse(writes.get(0).getValue().hasValue("m1"));
+	}
+
+	@Test
+	void invalidReceiptsAreIgnored() {
+		service.submit(1L, 10L, null);
+		service.submit(1L, 10L, 0L);
+		service.submit(null, 10L, 5L);
+		service.flush();
+
+		assertEquals(List.of(), writes);
+	}
+
+	@Test
+	void newWatermarkIsPushedToTheOnlinePartnerOnly() {
+		service.submit(1L, 10L, 8L);
+		// Partner 4 is offline
+		service.submit(3L, 11L, 9L);
+		service.flush();
+
+		assertEquals(1, pushed.size());
+		assertEquals("/user/b@example.com/queue/read-receipts", pushed.get(0).getKey());
+		assertEquals(10L, pushed.get(0).getValue().getChatId());
+		assertEquals(1L, pushed.get(0).getValue().getUserId());
+		assertEquals(8L, pushed.get(0).getValue().getMessageId());
+	}
+
+	@Test
+	void failedWriteIsRetriedWithTheHighestIdOnTheNextFlush() {
+		failuresLeft = 1;
+		service.submit(1L, 10L, 8L);
+		service.flush();
+		assertEquals(List.of(), pushed);
+
+		// Arrived after the failure with a lower id; must not move the watermark back
+		service.submit(1L, 10L, 7L);
+		service.flush();
+
+		assertEquals(2, writes.size());
+		assertEquals(8L, writes.get(1).getValue().getValue("m0"));
+		assertEquals(8L, pushed.get(0).getValue().getMessageId());
+	}
+
+	@Test
+	void flushNeverCountsMessages() {
+		service.submit(1L, 10L, 8L);
+		service.flush();
+
+		assertFalse(writes.get(0).getKey().toUpperCase().contains("COUNT("));
+	}
+
+	@Test
+	void floodQueuesOneEarlyFlushOnTheScheduler() {
+		for (long chatId = 1; chatId <= MAX_PENDING + 3; chatId++) {
+			service.submit(1L, chatId, 5L);
+		}
+
+		verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+		// Nothing is written on the caller's thread
+		assertEquals(List.of(), writes);
+	}
+
+	@Test
+	void emptyFlushWritesNothing() {
+		service.flush();
+
+		assertEquals(List.of(), writes);
+		verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+	}
+}
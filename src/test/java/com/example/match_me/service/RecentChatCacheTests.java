@@ -0,0 +1,136 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.match_me.DTO.UsersChatDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RecentChatCacheTests {
+
+	private static final long CHAT = 100L;
+	private static final int RING = 5;
+
+	private RecentChatCache cache;
+
+	@BeforeEach
+	void setUp() {
+		cache = new RecentChatCache(new SimpleMeterRegistry(), mock(ClusterCacheEvents.class), RING, 10);
+	}
+
+	@Test
+	void firstReadLoadsOnceThenServesFromTheRing() {
+		AtomicInteger loads = new AtomicInteger();
+		Function<Long, RecentChatCache.Tail> loader = chatId -> {
+			loads.incrementAndGet();
+			return tail(3, 1, 2, 3);
+		};
+
+		assertEquals(List.of(3L, 2L, 1L), ids(cache.getRecent(CHAT, 0, 3, loader)));
+		assertEquals(List.of(2L), ids(cache.getRecent(CHAT, 1, 1, loader)));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void rangeBeyondTheRingIsNotCovered() {
+		assertNull(cache.getRecent(CHAT, 3, RING, chatId -> tail(0)));
+	}
+
+	@Test
+	void appendKeepsOnlyTheLastMessagesAndCountsAll() {
+		cache.getRecent(CHAT, 0, 1, chatId -> tail(5, 1, 2, 3, 4, 5));
+		cache.append(message(6));
+		cache.append(message(7));
+
+		RecentChatCache.Tail recent = cache.getRecent(CHAT, 0, RING, chatId -> tail(0));
+		assertEquals(List.of(7L, 6L, 5L, 4L, 3L), ids(recent));
+		assertEquals(7, recent.totalMessages());
+	}
+
+	// Committed before the loader query, but its afterCommit append runs after the fill
+	@Test
+	void lateAppendOfALoadedMessageIsDropped() {
+		cache.getRecent(CHAT, 0, 1, chatId -> tail(3, 1, 2, 3));
+		cache.append(message(3));
+
+		RecentChatCache.Tail recent = cache.getRecent(CHAT, 0, RING, chatId -> tail(0));
+		assertEquals(List.of(3L, 2L, 1L), ids(recent));
+		assertEquals(3, recent.totalMessages());
+	}
+
+	@Test
+	void appendsThatCommittedOutOfIdOrderStayOrdered() {
+		cache.getRecent(CHAT, 0, 1, chatId -> tail(2, 1, 2));
+		cache.append(message(4));
+		cache.append(message(3));
+
+		RecentChatCache.Tail recent = cache.getRecent(CHAT, 0, RING, chatId -> tail(0));
+		assertEquals(List.of(4L, 3L, 2L, 1L), ids(recent));
+		assertEquals(4, recent.totalMessages());
+	}
+
+	@Test
+	void appendDuringTheLoadIsMergedOnce() {
+		RecentChatCache.Tail recent = cache.getRecent(CHAT, 0, RING, chatId -> {
+			// Message 3 is in the loaded rows, message 4 committed after the query
+			cache.append(message(3));
+			cache.append(message(4));
+			return tail(3, 1, 2, 3);
+		});
+
+		assertEquals(List.of(4L, 3L, 2L, 1L), ids(recent));
+		assertEquals(4, recent.totalMessages());
+	}
+
+	@Test
+	void getAfterReturnsNewerMessagesInOrder() {
+		cache.getRecent(CHAT, 0, 1, chatId -> tail(4, 1, 2, 3, 4));
+
+		assertEquals(List.of(3L, 4L), ids(cache.getAfter(CHAT, 2, 10, chatId -> tail(0))));
+		assertEquals(List.of(3L), ids(cache.getAfter(CHAT, 2, 1, chatId -> tail(0))));
+		assertNull(cache.getAfter(CHAT, 99, 10, chatId -> tail(0)));
+	}
+
+	@Test
+	void invalidatedRingIsReloaded() {
+		cache.getRecent(CHAT, 0, 1, chatId -> tail(1, 1));
+		cache.onInvalidation(new ClusterCacheEvents.Invalidation(ClusterCacheEvents.Type.CHAT_MESSAGES, CHAT, 0));
+
+		assertEquals(List.of(2L, 1L), ids(cache.getRecent(CHAT, 0, 2, chatId -> tail(2, 1, 2))));
+	}
+
+	private static RecentChatCache.Tail tail(long total, long... oldestFirst) {
+		List<UsersChatDTO> newestFirst = new ArrayList<>();
+		for (int i = oldestFirst.length - 1; i >= 0; i--) {
+			newestFirst.add(message(oldestFirst[i]));
+		}
+		return new RecentChatCache.Tail(newestFirst, total);
+	}
+
+	private static UsersChatDTO message(long id) {
+		return new UsersChatDTO(id, CHAT, 1L, "User 1", "message " + id, LocalDateTime.of(2024, 5, 1, 12, 0).plusSeconds(id));
+	}
+
+	private static List<Long> ids(RecentChatCache.Tail tail) {
+		return ids(tail.newestFirst());
+	}
+
+	private static List<Long> ids(List<UsersChatDTO> messages) {
+		List<Long> ids = new ArrayList<>();
+		for (UsersChatDTO message : messages) {
+			ids.add(message.getId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,223 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.example.match_me.DTO.LikeResponse;
+
+class SwipeBatchWriterTests {
+
+	// In-memory user_likes ((liker, liked) -> is_like) and matches ((low, high)) behind the mocked template
+	private final Map<List<Long>, Boolean> likes = new HashMap<>();
+	private final Set<List<Long>> matches = new HashSet<>();
+	private final Set<Long> users = new HashSet<>(List.of(1L, 2L, 3L, 4L));
+
+	private MatchNotificationDispatcher dispatcher;
+	private SwipeEventLog swipeEventLog;
+	private SwipeBatchWriter writer;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+		when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class), eq(Long.class)))
+				.thenAnswer(invocation -> {
+					MapSqlParameterSource params = invocation.getArgument(1);
+					Set<Long> ids = new HashSet<>((Set<Long>) params.getValue("ids"));
+					ids.retainAll(users);
+					return new ArrayList<>(ids);
+				});
+		doAnswer(invocation -> {
+			query(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+			return null;
+		}).when(jdbcTemplate).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+		when(jdbcTemplate.update(anyString(), any(SqlParameterSource.class))).thenAnswer(invocation -> {
+			update(invocation.getArgument(0), invocation.getArgument(1));
+			return 1;
+		});
+
+		dispatcher = mock(MatchNotificationDispatcher.class);
+		swipeEventLog = mock(SwipeEventLog.class);
+		writer = new SwipeBatchWriter(jdbcTemplate, dispatcher, mock(InteractionBloomFilter.class),
+				mock(LikeStatsService.class), mock(DisplayNameCache.class), mock(MatchPairCache.class), swipeEventLog);
+	}
+
+	@Test
+	void oneResponsePerSwipeInInputOrder() {
+		List<LikeResponse> results = writer.applySwipes(List.of(
+				new SwipeBatchWriter.Swipe(1L, 2L, true),
+				new SwipeBatchWriter.Swipe(1L, 1L, true),
+				new SwipeBatchWriter.Swipe(1L, 99L, true),
+				new SwipeBatchWriter.Swipe(1L, 3L, false)));
+
+		assertEquals("Like sent successfully", results.get(0).getMessage());
+		assertEquals("Cannot interact with yourself", results.get(1).getMessage());
+		assertEquals("User not found", results.get(2).getMessage());
+		assertEquals("Dislike recorded", results.get(3).getMessage());
+		assertEquals(true, likes.get(List.of(1L, 2L)));
+		assertEquals(false, likes.get(List.of(1L, 3L)));
+	}
+
+	@Test
+	void lastSwipeForAPairWins() {
+		List<LikeResponse> results = writer.applySwipes(List.of(
+				new SwipeBatchWriter.Swipe(1L, 2L, true),
+				new SwipeBatchWriter.Swipe(1L, 2L, false)));
+
+		assertTrue(results.get(0).isSuccess());
+		assertEquals("Dislike recorded", results.get(1).getMessage());
+		assertEquals(false, likes.get(List.of(1L, 2L)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void mutualLikeInOneBatchIsOneMatchNotifiedOnce() {
+		List<LikeResponse> results = writer.applySwipes(List.of(
+				new SwipeBatchWriter.Swipe(1L, 2L, true),
+				new SwipeBatchWriter.Swipe(2L, 1L, true)));
+
+		assertTrue(results.get(0).isMatch());
+		assertTrue(results.get(1).isMatch());
+		assertEquals(Set.of(List.of(1L, 2L)), matches);
+		ArgumentCaptor<List<MatchNotificationDispatcher.Notification>> sent = ArgumentCaptor.forClass(List.class);
+		verify(dispatcher).enqueue(sent.capture());
+		assertEquals(2, sent.getValue().size());
+	}
+
+	@Test
+	void reLikingAnExistingMatchDoesNotNotify() {
+		likes.put(List.of(1L, 2L), true);
+		likes.put(List.of(2L, 1L), true);
+		matches.add(List.of(1L, 2L));
+
+		assertTrue(writer.applySwipes(List.of(new SwipeBatchWriter.Swipe(1L, 2L, true))).get(0).isMatch());
+
+		verify(dispatcher, never()).enqueue(anyList());
+	}
+
+	@Test
+	void dislikeEndsTheMatch() {
+		likes.put(List.of(1L, 2L), true);
+		likes.put(List.of(2L, 1L), true);
+		matches.add(List.of(1L, 2L));
+
+		writer.applySwipes(List.of(new SwipeBatchWriter.Swipe(2L, 1L, false)));
+
+		assertEquals(Set.of(), matches);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void removalDeletesTheRowAndEndsTheMatch() {
+		likes.put(List.of(1L, 2L), true);
+		likes.put(List.of(2L, 1L), true);
+		matches.add(List.of(1L, 2L));
+
+		LikeResponse result = writer.applySwipes(List.of(SwipeBatchWriter.Swipe.removal(1L, 2L))).get(0);
+
+		assertTrue(result.isSuccess());
+		assertFalse(likes.containsKey(List.of(1L, 2L)));
+		assertEquals(Set.of(), matches);
+		ArgumentCaptor<List<SwipeEventLog.SwipeEvent>> events = ArgumentCaptor.forClass(List.class);
+		verify(swipeEventLog).record(events.capture());
+		assertEquals(SwipeEventLog.EventType.REMOVE, events.getValue().get(0).type());
+	}
+
+	@Test
+	void removalWithoutARowFails() {
+		assertFalse(writer.applySwipes(List.of(SwipeBatchWriter.Swipe.removal(1L, 2L))).get(0).isSuccess());
+	}
+
+	// A removal queued after a swipe for the same pair must win, not be re-created by it
+	@Test
+	void removalAfterASwipeInTheSameBatchWins() {
+		likes.put(List.of(1L, 2L), false);
+
+		List<LikeResponse> results = writer.applySwipes(List.of(
+				new SwipeBatchWriter.Swipe(1L, 2L, true),
+				SwipeBatchWriter.Swipe.removal(1L, 2L)));
+
+		assertTrue(results.get(1).isSuccess());
+		assertFalse(likes.containsKey(List.of(1L, 2L)));
+	}
+
+	private void query(String sql, MapSqlParameterSource params, RowCallbackHandler handler) throws Exception {
+		List<List<Long>> pairs = new ArrayList<>();
+		for (int i = 0; params.hasValue("a" + i); i++) {
+			pairs.add(List.of((Long) params.getValue("a" + i), (Long) params.getValue("b" + i)));
+		}
+		if (sql.startsWith("SELECT liker_id, liked_id, is_like")) {
+			for (List<Long> pair : pairs) {
+				if (likes.containsKey(pair)) {
+					handler.processRow(row("liker_id", pair.get(0), "liked_id", pair.get(1), likes.get(pair)));
+				}
+			}
+		} else if (sql.startsWith("SELECT liker_id, liked_id")) {
+			for (List<Long> pair : pairs) {
+				if (Boolean.TRUE.equals(likes.get(pair))) {
+					handler.processRow(row("liker_id", pair.get(0), "liked_id", pair.get(1), true));
+				}
+			}
+		} else if (sql.startsWith("INSERT INTO matches")) {
+			for (List<Long> pair : pairs) {
+				if (matches.add(pair)) {
+					handler.processRow(row("user_low_id", pair.get(0), "user_high_id", pair.get(1), true));
+				}
+			}
+		} else if (sql.startsWith("DELETE FROM matches")) {
+			for (List<Long> pair : pairs) {
+				if (matches.remove(pair)) {
+					handler.processRow(row("user_low_id", pair.get(0), "user_high_id", pair.get(1), true));
+				}
+			}
+		}
+	}
+
+	private void update(String sql, MapSqlParameterSource params) {
+		if (sql.startsWith("INSERT INTO user_likes")) {
+			for (int i = 0; params.hasValue("liker" + i); i++) {
+				likes.put(List.of((Long) params.getValue("liker" + i), (Long) params.getValue("liked" + i)),
+						(Boolean) params.getValue("like" + i));
+			}
+		} else if (sql.startsWith("DELETE FROM user_likes")) {
+			for (int i = 0; params.hasValue("a" + i); i++) {
+				likes.remove(List.of((Long) params.getValue("a" + i), (Long) params.getValue("b" + i)));
+			}
+		}
+	}
+
+	private static ResultSet row(String firstColumn, long first, String secondColumn, long second, boolean isLike)
+			throws Exception {
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.getLong(firstColumn)).thenReturn(first);
+		when(rs.getLong(secondColumn)).thenReturn(second);
+		when(rs.getBoolean("is_like")).thenReturn(isLike);
+		return rs;
+	}
+}
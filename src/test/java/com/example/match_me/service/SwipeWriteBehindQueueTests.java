@@ -0,0 +1,148 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.match_me.DTO.LikeResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SwipeWriteBehindQueueTests {
+
+	private static final long BAD_LIKED = 99L;
+
+	private SwipeBatchWriter writer;
+	private SimpleMeterRegistry meterRegistry;
+	private SwipeWriteBehindQueue queue;
+
+	@BeforeEach
+	void setUp() {
+		writer = mock(SwipeBatchWriter.class);
+		meterRegistry = new SimpleMeterRegistry();
+		queue = new SwipeWriteBehindQueue(writer, meterRegistry, "write-behind", "enqueue", 100, 5, 500, 5000, 3, 0);
+	}
+
+	@Test
+	void successfulBatchCompletesEverySwipe() {
+		when(writer.applySwipes(anyList())).thenAnswer(invocation -> succeed(invocation.getArgument(0)));
+		List<SwipeWriteBehindQueue.PendingSwipe> batch = batch(1L, 2L, 3L);
+
+		queue.flush(batch);
+
+		verify(writer, times(1)).applySwipes(anyList());
+		batch.forEach(pending -> assertTrue(pending.result().join().isSuccess()));
+		assertEquals(0, failed());
+	}
+
+	@Test
+	void transientFailureIsRetried() {
+		AtomicInteger calls = new AtomicInteger();
+		when(writer.applySwipes(anyList())).thenAnswer(invocation -> {
+			if (calls.getAndIncrement() == 0) {
+				throw new IllegalStateException("deadlock detected");
+			}
+			return succeed(invocation.getArgument(0));
+		});
+		List<SwipeWriteBehindQueue.PendingSwipe> batch = batch(1L, 2L);
+
+		queue.flush(batch);
+
+		assertEquals(2, calls.get());
+		batch.forEach(pending -> assertTrue(pending.result().join().isSuccess()));
+		assertEquals(0, failed());
+	}
+
+	@Test
+	void oneBadSwipeDoesNotSinkTheRestOfTheBatch() {
+		when(writer.applySwipes(anyList())).thenAnswer(invocation -> {
+			List<SwipeBatchWriter.Swipe> swipes = invocation.getArgument(0);
+			if (swipes.stream().anyMatch(swipe -> swipe.likedUserId() == BAD_LIKED)) {
+				throw new IllegalStateException("bad row");
+			}
+			return succeed(swipes);
+		});
+		List<SwipeWriteBehindQueue.PendingSwipe> batch = batch(1L, 2L, BAD_LIKED, 4L, 5L);
+
+		queue.flush(batch);
+
+		for (SwipeWriteBehindQueue.PendingSwipe pending : batch) {
+			LikeResponse result = pending.result().join();
+			assertEquals(pending.swipe().likedUserId() != BAD_LIKED, result.isSuccess(), pending.swipe().toString());
+		}
+		assertEquals(1, failed());
+	}
+
+	@Test
+	void outageDropsEverySwipeOnce() {
+		when(writer.applySwipes(anyList())).thenThrow(new IllegalStateException("connection refused"));
+		List<SwipeWriteBehindQueue.PendingSwipe> batch = batch(1L, 2L, 3L, 4L);
+
+		queue.flush(batch);
+
+		batch.forEach(pending -> assertFalse(pending.result().join().isSuccess()));
+		assertEquals(4, failed());
+	}
+
+	// Writing around a full queue could commit before an older queued swipe for the same pair
+	@Test
+	void fullQueueRejectsInsteadOfWritingDirectly() {
+		// Never started, so nothing is accepted
+		LikeResponse result = queue.submitRemoval(1000L, 2L);
+
+		assertTrue(SwipeWriteBehindQueue.isRejected(result));
+		verify(writer, never()).applySwipes(anyList());
+		assertEquals(1, meterRegistry.counter("likes.write-behind.overflow").count());
+	}
+
+	@Test
+	void queuedRemovalIsAcknowledged() throws Exception {
+		queue.start();
+		try {
+			when(writer.applySwipes(anyList())).thenAnswer(invocation -> succeed(invocation.getArgument(0)));
+
+			LikeResponse result = queue.submitRemoval(1000L, 2L);
+
+			assertTrue(result.isSuccess());
+			assertFalse(SwipeWriteBehindQueue.isRejected(result));
+		} finally {
+			queue.stop();
+		}
+		verify(writer).applySwipes(List.of(SwipeBatchWriter.Swipe.removal(1000L, 2L)));
+	}
+
+	private double failed() {
+		return meterRegistry.counter("likes.write-behind.failed").count();
+	}
+
+	private static List<SwipeWriteBehindQueue.PendingSwipe> batch(Long... likedIds) {
+		List<SwipeWriteBehindQueue.PendingSwipe> batch = new ArrayList<>();
+		for (Long likedId : likedIds) {
+			batch.add(new SwipeWriteBehindQueue.PendingSwipe(new SwipeBatchWriter.Swipe(1000L, likedId, true),
+					new CompletableFuture<>()));
+		}
+		return batch;
+	}
+
+	private static List<LikeResponse> succeed(List<SwipeBatchWriter.Swipe> swipes) {
+		List<LikeResponse> results = new ArrayList<>();
+		for (SwipeBatchWriter.Swipe swipe : swipes) {
+			results.add(new LikeResponse(true, "Interaction saved successfully", false, swipe.likedUserId()));
+		}
+		return results;
+	}
+}
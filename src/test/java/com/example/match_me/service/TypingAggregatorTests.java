@@ -0,0 +1,158 @@
+package com.example.match_me.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.example.match_me.DTO.TypingStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TypingAggregatorTests {
+
+	private static final long THROTTLE_MS = 1000;
+	private static final long EXPIRY_MS = 5000;
+	private static final long T0 = 1_000_000;
+
+	private final Queue<TypingStatus> sent = new ConcurrentLinkedQueue<>();
+	private TypingAggregator aggregator;
+
+	@BeforeEach
+	void setUp() {
+		SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+			sent.add((TypingStatus) message.getPayload());
+			return true;
+		});
+		aggregator = new TypingAggregator(template, new SimpleMeterRegistry(), THROTTLE_MS, EXPIRY_MS);
+	}
+
+	@Test
+	void repeatedTypingFramesAreSentOnce() {
+		aggregator.onFrame(1L, 10L, true, T0);
+		aggregator.onFrame(1L, 10L, true, T0 + 100);
+		aggregator.onFrame(1L, 10L, true, T0 + 2000);
+
+		assertEquals(List.of(true), states());
+	}
+
+	@Test
+	void changeInsideThrottleIsHeldForTheSweeper() {
+		aggregator.onFrame(1L, 10L, true, T0);
+		aggregator.onFrame(1L, 10L, false, T0 + 200);
+		aggregator.sweep(T0 + 500);
+		assertEquals(List.of(true), states());
+
+		aggregator.sweep(T0 + THROTTLE_MS);
+		assertEquals(List.of(true, false), states());
+	}
+
+	@Test
+	void flapInsideThrottleSendsNothingExtra() {
+		aggregator.onFrame(1L, 10L, true, T0);
+		aggregator.onFrame(1L, 10L, false, T0 + 200);
+		aggregator.onFrame(1L, 10L, true, T0 + 400);
+		aggregator.sweep(T0 + THROTTLE_MS);
+
+		assertEquals(List.of(true), states());
+	}
+
+	@Test
+	void silentTyperExpires() {
+		aggregator.onFrame(1L, 10L, true, T0);
+		aggregator.sweep(T0 + EXPIRY_MS - 1);
+		assertEquals(List.of(true), states());
+
+		aggregator.sweep(T0 + EXPIRY_MS);
+		assertEquals(List.of(true, false), states());
+	}
+
+	@Test
+	void refreshedTyperDoesNotExpire() {
+		aggregator.onFrame(1L, 10L, true, T0);
+		aggregator.onFrame(1L, 10L, true, T0 + 4000);
+		aggregator.sweep(T0 + EXPIRY_MS);
+
+		assertEquals(List.of(true), states());
+	}
+
+	@Test
+	void frameAfterIdleStateWasRemovedStartsAgain() {
+		aggregator.onFrame(1L, 10L, true, T0);
+		aggregator.onFrame(1L, 10L, false, T0 + THROTTLE_MS);
+		// Idle for a full interval: the sweeper drops the state
+		aggregator.sweep(T0 + 2 * THROTTLE_MS);
+		aggregator.onFrame(1L, 10L, true, T0 + 2 * THROTTLE_MS);
+
+		assertEquals(List.of(true, false, true), states());
+	}
+
+	@Test
+	void usersAndChatsAreThrottledSeparately() {
+		aggregator.onFrame(1L, 10L, true, T0);
+		aggregator.onFrame(1L, 11L, true, T0);
+		aggregator.onFrame(2L, 10L, true, T0);
+
+		assertEquals(3, sent.size());
+	}
+
+	// The sweeper removing an idle state races with a new frame for the same key; the frame must
+	// never land on the removed state and get lost
+	@Test
+	void frameRacingWithRemovalIsNotLost() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			int rounds = 2000;
+			long now = T0;
+			for (int i = 0; i < rounds; i++) {
+				// Idle state, due for removal at `now`
+				aggregator.onFrame(1L, 10L, false, now - THROTTLE_MS);
+				CyclicBarrier barrier = new CyclicBarrier(2);
+				long at = now;
+				Future<?> sweep = executor.submit(() -> {
+					barrier.await();
+					aggregator.sweep(at);
+					return null;
+				});
+				Future<?> frame = executor.submit(() -> {
+					barrier.await();
+					aggregator.onFrame(1L, 10L, true, at);
+					return null;
+				});
+				sweep.get(5, TimeUnit.SECONDS);
+				frame.get(5, TimeUnit.SECONDS);
+
+				assertEquals(List.of(true), states(), "typing frame lost in round " + i);
+				sent.clear();
+				// Back to idle for the next round
+				aggregator.onFrame(1L, 10L, false, now + THROTTLE_MS);
+				aggregator.sweep(now + 2 * THROTTLE_MS);
+				sent.clear();
+				now += 10 * THROTTLE_MS;
+			}
+		} finally {
+			executor.shutdownNow();
+			assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		}
+	}
+
+	private List<Boolean> states() {
+		List<Boolean> states = new ArrayList<>();
+		for (TypingStatus status : sent) {
+			states.add(status.isTyping());
+		}
+		return states;
+	}
+}